@@ -1,11 +1,28 @@
 package org.example;
 
+import org.example.cli.BatchCli;
+import org.example.cli.GraphImportCli;
+import org.example.cli.OptimizationServer;
 import org.example.ui.MainFrame;
 
 import javax.swing.*;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
+        // headless: java -jar app.jar batch <input> <output dir> [options]
+        if (args.length > 0 && args[0].equals("batch")) {
+            System.exit(BatchCli.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // HTTP service: java -jar app.jar server [--port N]
+        if (args.length > 0 && args[0].equals("server")) {
+            System.exit(OptimizationServer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // offline routing graph: java -jar app.jar import-graph <extract.osm[.gz]> <graph file>
+        if (args.length > 0 && args[0].equals("import-graph")) {
+            System.exit(GraphImportCli.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,338 @@
+package org.example.cli;
+
+import org.example.config.AppConfig;
+import org.example.model.DeliveryStop;
+import org.example.model.Location;
+import org.example.model.RouteResult;
+import org.example.model.StopListParser;
+import org.example.optimizer.FleetOptions;
+import org.example.optimizer.RouteOptimizer;
+import org.example.routing.Futures;
+import org.example.routing.GeocodeResult;
+import org.example.routing.MatrixResult;
+import org.example.routing.OrsTransport;
+import org.example.routing.RoutingProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch mode: {@code java -jar app.jar batch <input> <output dir> [options]}.
+ *
+ * Input is a directory of *.txt route files or a manifest listing route files (one path per line,
+ * relative to the manifest, '#' starts a comment). A route file is the address list of the window,
+ * optionally led by a "start: адрес" line. Jobs run on a bounded pool and share one ORS client
+ * (connections, geocode rate limit) and the geocode and matrix caches. Each finished job is written
+ * right away as &lt;name&gt;.csv / &lt;name&gt;.json, plus a line in summary.csv with its timings.
+ *
+ * Options: --jobs N (parallel routes, default 2 × cores), --format csv|json|both (default both),
+ * --vehicles N (split every route between N couriers, default fleet.vehicles).
+ */
+public final class BatchCli {
+
+    private static final String USAGE =
+            "Использование: batch <папка с .txt или список файлов> <папка для результатов>"
+                    + " [--jobs N] [--format csv|json|both] [--vehicles N]";
+
+    private final AppConfig cfg;
+    private final Path outDir;
+    private final boolean csv;
+    private final boolean json;
+    private final int vehicles;
+    private final RoutingProvider routing;
+    private final ObjectMapper om = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Writer summary;
+
+    private BatchCli(AppConfig cfg, Path outDir, boolean csv, boolean json, int vehicles,
+                     RoutingProvider routing, Writer summary) {
+        this.cfg = cfg;
+        this.outDir = outDir;
+        this.csv = csv;
+        this.json = json;
+        this.vehicles = vehicles;
+        this.routing = routing;
+        this.summary = summary;
+    }
+
+    /** @return process exit code: 0 all routes done, 1 some failed, 2 bad arguments */
+    public static int run(String[] args) {
+        Path input = null;
+        Path outDir = null;
+        int jobs = 2 * Runtime.getRuntime().availableProcessors();
+        String format = "both";
+        Integer vehicles = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--jobs": jobs = Integer.parseInt(args[++i]); break;
+                    case "--format": format = args[++i].toLowerCase(Locale.ROOT); break;
+                    case "--vehicles": vehicles = Integer.parseInt(args[++i]); break;
+                    default:
+                        if (input == null) input = Path.of(args[i]);
+                        else if (outDir == null) outDir = Path.of(args[i]);
+                        else throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (input == null || outDir == null || jobs < 1
+                || !(format.equals("csv") || format.equals("json") || format.equals("both"))) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        if (!Files.exists(input)) {
+            System.err.println("Нет такого файла или папки: " + input);
+            return 2;
+        }
+
+        try {
+            AppConfig cfg = AppConfig.load();
+            List<Path> files = routeFiles(input);
+            if (files.isEmpty()) {
+                System.err.println("Нет файлов маршрутов: " + input);
+                return 2;
+            }
+            Files.createDirectories(outDir);
+
+            try (SharedRouting routing = SharedRouting.open(cfg);
+                 Writer summary = Files.newBufferedWriter(outDir.resolve("summary.csv"), StandardCharsets.UTF_8)) {
+                summary.write("file,status,routes,stops,distance_m,duration_s,geocode_ms,matrix_ms,solve_ms,total_ms,error\n");
+                summary.flush();
+
+                BatchCli cli = new BatchCli(cfg, outDir, !format.equals("json"), !format.equals("csv"),
+                        vehicles != null ? vehicles : cfg.fleetVehicles(), routing.provider, summary);
+                return cli.runAll(files, Math.min(jobs, files.size()));
+            }
+        } catch (Exception e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static List<Path> routeFiles(Path input) throws IOException {
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> s = Files.list(input)) {
+                return s.filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".txt"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        Path base = input.toAbsolutePath().getParent();
+        List<Path> out = new ArrayList<>();
+        for (String line : StopListParser.lines(Files.readString(input, StandardCharsets.UTF_8))) {
+            if (!line.startsWith("#")) out.add(base.resolve(line));
+        }
+        return out;
+    }
+
+    private int runAll(List<Path> files, int jobs) throws Exception {
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(jobs, r -> {
+            Thread t = new Thread(r, "batch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long t0 = System.nanoTime();
+        int failed = 0;
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(files.size());
+            for (Path f : files) futures.add(pool.submit(() -> runJob(f)));
+            for (Future<Boolean> f : futures) {
+                try {
+                    if (!f.get()) failed++;
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.err.printf(Locale.ROOT, "Готово: %d маршрутов, ошибок %d, %.1f с.%n",
+                files.size(), failed, (System.nanoTime() - t0) / 1e9);
+        System.err.println(OrsTransport.shared(cfg).stats());
+        return failed == 0 ? 0 : 1;
+    }
+
+    /** @return false if the route failed (the failure is recorded in summary.csv) */
+    private boolean runJob(Path file) throws IOException {
+        String name = baseName(file);
+        TimedRouting timed = new TimedRouting(routing);
+        long t0 = System.nanoTime();
+        try {
+            String start = "";
+            List<String> lines = StopListParser.lines(Files.readString(file, StandardCharsets.UTF_8));
+            StringBuilder body = new StringBuilder();
+            for (String line : lines) {
+                String lower = line.toLowerCase(Locale.ROOT);
+                if (start.isEmpty() && body.length() == 0 && (lower.startsWith("start:") || lower.startsWith("старт:"))) {
+                    start = line.substring(line.indexOf(':') + 1).trim();
+                } else {
+                    body.append(line).append('\n');
+                }
+            }
+            List<DeliveryStop> stops = StopListParser.parse(body.toString(), cfg.departureTime());
+            if (stops.isEmpty()) throw new IllegalArgumentException("Нет адресов доставки.");
+
+            RouteOptimizer opt = new RouteOptimizer(timed, cfg);
+            List<RouteResult> routes = new ArrayList<>();
+            if (vehicles > 1) {
+                List<String> addresses = new ArrayList<>(stops.size());
+                for (DeliveryStop s : stops) {
+                    if (s.hasWindow()) throw new IllegalArgumentException("Окна доставки не поддерживаются для нескольких курьеров.");
+                    addresses.add(s.address());
+                }
+                FleetOptions fleet = new FleetOptions(vehicles, cfg.fleetMaxStops(), cfg.fleetMaxDuration());
+                routes.addAll(opt.optimizeFleet(start, addresses, fleet));
+            } else {
+                routes.add(opt.optimizeStops(start, stops));
+            }
+            long totalNanos = System.nanoTime() - t0;
+
+            if (csv) writeCsv(outDir.resolve(name + ".csv"), routes);
+            if (json) writeJson(outDir.resolve(name + ".json"), name, routes, timed, totalNanos);
+
+            int stopCount = 0;
+            double dist = 0.0;
+            double dur = 0.0;
+            for (RouteResult r : routes) {
+                stopCount += r.orderedStops().size();
+                dist += r.totalDistanceMeters();
+                dur += r.totalDurationSeconds();
+            }
+            summaryLine(String.format(Locale.ROOT, "%s,ok,%d,%d,%.0f,%.0f,%d,%d,%d,%d,",
+                    csvEscape(name), routes.size(), stopCount, dist, dur,
+                    timed.geocodeMillis(), timed.matrixMillis(), timed.solveMillis(totalNanos), totalNanos / 1_000_000));
+            System.err.printf(Locale.ROOT, "%s: %d точек, %.1f км, %d мс%n",
+                    name, stopCount, dist / 1000.0, totalNanos / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            long totalNanos = System.nanoTime() - t0;
+            summaryLine(String.format(Locale.ROOT, "%s,error,0,0,0,0,%d,%d,0,%d,%s",
+                    csvEscape(name), timed.geocodeMillis(), timed.matrixMillis(), totalNanos / 1_000_000,
+                    csvEscape(String.valueOf(e.getMessage()))));
+            System.err.println(name + ": ошибка: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void summaryLine(String line) throws IOException {
+        synchronized (summary) {
+            summary.write(line);
+            summary.write('\n');
+            summary.flush();
+        }
+    }
+
+    private static void writeCsv(Path file, List<RouteResult> routes) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("route,order,address,lat,lon,service_start_s\n");
+            for (int r = 0; r < routes.size(); r++) {
+                RouteResult res = routes.get(r);
+                double[] starts = res.serviceStartSeconds();
+                int i = 0;
+                for (Location l : res.orderedStops()) {
+                    w.write((r + 1) + "," + (i + 1) + "," + csvEscape(l.address()) + "," + l.lat() + "," + l.lon() + ","
+                            + (starts == null ? "" : String.format(Locale.ROOT, "%.0f", starts[i])) + "\n");
+                    i++;
+                }
+            }
+        }
+    }
+
+    private void writeJson(Path file, String name, List<RouteResult> routes, TimedRouting timed,
+                           long totalNanos) throws IOException {
+        ObjectNode root = om.createObjectNode();
+        root.put("name", name);
+
+        RouteJson.putRoutes(root, routes);
+
+        ObjectNode t = root.putObject("timings");
+        t.put("geocodeMs", timed.geocodeMillis());
+        t.put("matrixMs", timed.matrixMillis());
+        t.put("solveMs", timed.solveMillis(totalNanos));
+        t.put("totalMs", totalNanos / 1_000_000);
+
+        om.writeValue(file.toFile(), root);
+    }
+
+    private static String baseName(Path file) {
+        String n = file.getFileName().toString();
+        int dot = n.lastIndexOf('.');
+        return dot > 0 ? n.substring(0, dot) : n;
+    }
+
+    private static String csvEscape(String s) {
+        if (s == null) return "\"\"";
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    /** Per-job view of the shared provider that measures time spent in geocoding and the matrix. */
+    private static final class TimedRouting implements RoutingProvider {
+        private final RoutingProvider delegate;
+        private long geocodeNanos;
+        private long matrixNanos;
+
+        TimedRouting(RoutingProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Location geocode(String address) throws Exception {
+            return Futures.await(geocodeAsync(address));
+        }
+
+        @Override
+        public List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+            return Futures.await(geocodeBatchAsync(addresses));
+        }
+
+        @Override
+        public MatrixResult buildMatrix(List<Location> locations) throws Exception {
+            return Futures.await(buildMatrixAsync(locations));
+        }
+
+        @Override
+        public CompletableFuture<Location> geocodeAsync(String address) {
+            long t0 = System.nanoTime();
+            return delegate.geocodeAsync(address).whenComplete((v, e) -> geocodeNanos += System.nanoTime() - t0);
+        }
+
+        @Override
+        public CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+            long t0 = System.nanoTime();
+            return delegate.geocodeBatchAsync(addresses).whenComplete((v, e) -> geocodeNanos += System.nanoTime() - t0);
+        }
+
+        @Override
+        public CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
+            long t0 = System.nanoTime();
+            return delegate.buildMatrixAsync(locations).whenComplete((v, e) -> matrixNanos += System.nanoTime() - t0);
+        }
+
+        long geocodeMillis() { return geocodeNanos / 1_000_000; }
+        long matrixMillis() { return matrixNanos / 1_000_000; }
+        long solveMillis(long totalNanos) { return Math.max(0, totalNanos - geocodeNanos - matrixNanos) / 1_000_000; }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.cli;
+
+import org.example.routing.graph.OsmImport;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@code java -jar app.jar import-graph <extract.osm[.gz]> <graph file>}: builds the road graph
+ * for offline routing (offline.graphFile). PBF extracts can be converted first, e.g. with
+ * {@code osmium tags-filter region.osm.pbf w/highway -o roads.osm.gz}, which also keeps the
+ * import small.
+ */
+public final class GraphImportCli {
+
+    private GraphImportCli() {}
+
+    /** @return process exit code: 0 done, 1 import failed, 2 bad arguments */
+    public static int run(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Использование: import-graph <выгрузка .osm или .osm.gz> <файл графа>");
+            return 2;
+        }
+        Path osm = Path.of(args[0]);
+        if (!Files.isRegularFile(osm)) {
+            System.err.println("Нет такого файла: " + osm);
+            return 2;
+        }
+        try {
+            OsmImport.run(osm, Path.of(args[1]), System.err);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            return 1;
+        }
+    }
+}
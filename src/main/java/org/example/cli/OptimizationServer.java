@@ -0,0 +1,275 @@
+package org.example.cli;
+
+import org.example.config.AppConfig;
+import org.example.model.DeliveryStop;
+import org.example.model.Location;
+import org.example.model.RouteResult;
+import org.example.model.StopListParser;
+import org.example.optimizer.FleetOptions;
+import org.example.optimizer.RouteOptimizer;
+import org.example.routing.CostMatrix;
+import org.example.routing.Futures;
+import org.example.routing.GeocodeResult;
+import org.example.routing.MatrixResult;
+import org.example.routing.RoutingProvider;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP service mode: {@code java -jar app.jar server [--port N]} on the JDK's built-in server.
+ *
+ * POST /optimize {"start": "...", "stops": ["адрес | 10:00-12:00 | 5", ...], "vehicles": 1}
+ *   → {"routes": [...]} (stop lines use the address-list format of the window)
+ * POST /matrix {"locations": [[lon, lat], ...]} or {"addresses": [...]}
+ *   → {"durations": [[...]], "distances": [[...]]} (null = no route)
+ *
+ * Requests run on virtual threads where the JVM has them (Java 21+), otherwise on a cached pool.
+ * Geocoding and the matrix are async calls that hold no thread, so many requests wait on the network
+ * at once; only the CPU-bound solve is gated, at most server.maxConcurrent at a time (by default
+ * one per core). server.maxConcurrent + server.maxQueue requests are admitted; beyond that the
+ * answer is 503 with Retry-After. Identical requests in flight share one computation.
+ */
+public final class OptimizationServer {
+
+    private interface Endpoint {
+        JsonNode handle(JsonNode request) throws Exception;
+    }
+
+    private final AppConfig cfg;
+    private final RoutingProvider routing;
+    private final ObjectMapper om = new ObjectMapper();
+    private final ExecutorService solves;
+    private final int maxAdmitted;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final ConcurrentHashMap<String, CompletableFuture<JsonNode>> inFlight = new ConcurrentHashMap<>();
+
+    private OptimizationServer(AppConfig cfg, RoutingProvider routing) {
+        this.cfg = cfg;
+        this.routing = routing;
+        AtomicInteger seq = new AtomicInteger();
+        this.solves = Executors.newFixedThreadPool(cfg.serverMaxConcurrent(), r -> {
+            Thread t = new Thread(r, "solve-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxAdmitted = cfg.serverMaxConcurrent() + cfg.serverMaxQueue();
+    }
+
+    /** Serves until the process is stopped. @return process exit code */
+    public static int run(String[] args) {
+        AppConfig cfg;
+        int port;
+        try {
+            cfg = AppConfig.load();
+            port = cfg.serverPort();
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--port")) port = Integer.parseInt(args[++i]);
+                else throw new IllegalArgumentException(args[i]);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Использование: server [--port N]");
+            return 2;
+        }
+
+        SharedRouting routing;
+        try {
+            routing = SharedRouting.open(cfg);
+        } catch (IOException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            return 1;
+        }
+        try {
+            OptimizationServer service = new OptimizationServer(cfg, routing.provider);
+            HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+            http.createContext("/optimize", ex -> service.handle(ex, service::optimize));
+            http.createContext("/matrix", ex -> service.handle(ex, service::matrix));
+            http.setExecutor(requestExecutor());
+            http.start();
+            System.err.println("Сервис слушает порт " + port);
+
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                http.stop(1);
+                try { routing.close(); } catch (IOException ignored) {}
+                stopped.countDown();
+            }));
+            stopped.await();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Не удалось запустить сервис: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /** Virtual thread per request on Java 21+; the release target is 17, so it is looked up reflectively. */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger seq = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "http-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange ex, Endpoint endpoint) throws IOException {
+        try {
+            if (!ex.getRequestMethod().equals("POST")) {
+                send(ex, 405, error("Нужен POST с JSON."));
+                return;
+            }
+            if (admitted.incrementAndGet() > maxAdmitted) {
+                admitted.decrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                send(ex, 503, error("Сервис перегружен, повтори позже."));
+                return;
+            }
+            try {
+                JsonNode request = om.readTree(ex.getRequestBody());
+                if (request == null || !request.isObject()) throw new IllegalArgumentException("Ожидался JSON-объект.");
+                send(ex, 200, coalesced(ex.getHttpContext().getPath() + '\n' + om.writeValueAsString(request),
+                        endpoint, request));
+            } finally {
+                admitted.decrementAndGet();
+            }
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (Exception e) {
+            send(ex, 500, error(e.getMessage()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    /** The first request with this key computes; identical ones arriving meanwhile wait for its answer. */
+    private JsonNode coalesced(String key, Endpoint endpoint, JsonNode request) throws Exception {
+        CompletableFuture<JsonNode> mine = new CompletableFuture<>();
+        CompletableFuture<JsonNode> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            try {
+                mine.complete(endpoint.handle(request));
+            } catch (Throwable t) {
+                mine.completeExceptionally(t);
+            } finally {
+                inFlight.remove(key, mine);
+            }
+            running = mine;
+        }
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof Exception) throw (Exception) c;
+            throw e;
+        }
+    }
+
+    private JsonNode optimize(JsonNode req) throws Exception {
+        long t0 = System.nanoTime();
+        String start = req.path("start").asText("");
+        List<String> lines = new ArrayList<>();
+        for (JsonNode s : req.path("stops")) lines.add(s.asText());
+        List<DeliveryStop> stops = StopListParser.parse(String.join("\n", lines), cfg.departureTime());
+        if (stops.isEmpty()) throw new IllegalArgumentException("Нет адресов доставки (stops).");
+        int vehicles = req.path("vehicles").asInt(1);
+
+        RouteOptimizer opt = new RouteOptimizer(routing, cfg);
+        List<RouteResult> routes = new ArrayList<>();
+        if (vehicles > 1) {
+            List<String> addresses = new ArrayList<>(stops.size());
+            for (DeliveryStop s : stops) {
+                if (s.hasWindow()) throw new IllegalArgumentException("Окна доставки не поддерживаются для нескольких курьеров.");
+                addresses.add(s.address());
+            }
+            routes.addAll(Futures.await(opt.optimizeFleetAsync(start, addresses,
+                    new FleetOptions(vehicles, cfg.fleetMaxStops(), cfg.fleetMaxDuration()), solves)));
+        } else {
+            routes.add(Futures.await(opt.optimizeStopsAsync(start, stops, solves)));
+        }
+
+        ObjectNode out = om.createObjectNode();
+        RouteJson.putRoutes(out, routes);
+        out.put("elapsedMs", (System.nanoTime() - t0) / 1_000_000);
+        return out;
+    }
+
+    private JsonNode matrix(JsonNode req) throws Exception {
+        List<Location> locs = new ArrayList<>();
+        if (req.has("addresses")) {
+            List<String> addresses = new ArrayList<>();
+            for (JsonNode a : req.get("addresses")) addresses.add(a.asText());
+            for (GeocodeResult g : routing.geocodeBatch(addresses)) {
+                if (!g.isOk()) throw new IllegalArgumentException("Не удалось геокодировать: " + g.address());
+                locs.add(g.location());
+            }
+        } else {
+            for (JsonNode p : req.path("locations")) {
+                if (!p.isArray() || p.size() != 2) throw new IllegalArgumentException("Точка должна быть [lon, lat].");
+                locs.add(new Location("", p.get(0).asDouble(), p.get(1).asDouble()));
+            }
+        }
+        if (locs.isEmpty()) throw new IllegalArgumentException("Нет точек (locations или addresses).");
+
+        MatrixResult m = routing.buildMatrix(locs);
+        ObjectNode out = om.createObjectNode();
+        ArrayNode points = out.putArray("locations");
+        for (Location l : locs) points.addArray().add(l.lon()).add(l.lat());
+        putMatrix(out.putArray("durations"), m.durationsSeconds);
+        putMatrix(out.putArray("distances"), m.distancesMeters);
+        return out;
+    }
+
+    private static void putMatrix(ArrayNode rows, CostMatrix c) {
+        int n = c.size();
+        for (int i = 0; i < n; i++) {
+            ArrayNode row = rows.addArray();
+            for (int j = 0; j < n; j++) {
+                double v = c.get(i, j);
+                if (Double.isInfinite(v)) row.addNull();
+                else row.add(v);
+            }
+        }
+    }
+
+    private ObjectNode error(String message) {
+        ObjectNode e = om.createObjectNode();
+        e.put("error", message == null ? "Внутренняя ошибка." : message);
+        return e;
+    }
+
+    private void send(HttpExchange ex, int status, JsonNode body) throws IOException {
+        byte[] bytes = om.writeValueAsBytes(body);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
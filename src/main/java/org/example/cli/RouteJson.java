@@ -0,0 +1,39 @@
+package org.example.cli;
+
+import org.example.model.Location;
+import org.example.model.RouteResult;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+
+/** JSON shape of routes shared by the batch files and the HTTP service. */
+final class RouteJson {
+
+    private RouteJson() {}
+
+    /**
+     * Adds {@code "routes": [{totalDistanceMeters, totalDurationSeconds, stops: [...]}, ...]} to root;
+     * a route computed on straight-line estimates (ORS unreachable) also has {@code "approximate": true}.
+     */
+    static void putRoutes(ObjectNode root, List<RouteResult> routes) {
+        ArrayNode arr = root.putArray("routes");
+        for (RouteResult res : routes) {
+            ObjectNode r = arr.addObject();
+            r.put("totalDistanceMeters", res.totalDistanceMeters());
+            r.put("totalDurationSeconds", res.totalDurationSeconds());
+            if (res.isApproximate()) r.put("approximate", true);
+            double[] starts = res.serviceStartSeconds();
+            ArrayNode stops = r.putArray("stops");
+            int i = 0;
+            for (Location l : res.orderedStops()) {
+                ObjectNode s = stops.addObject();
+                s.put("address", l.address());
+                s.put("lat", l.lat());
+                s.put("lon", l.lon());
+                if (starts != null) s.put("serviceStartSeconds", starts[i]);
+                i++;
+            }
+        }
+    }
+}
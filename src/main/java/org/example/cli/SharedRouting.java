@@ -0,0 +1,55 @@
+package org.example.cli;
+
+import org.example.config.AppConfig;
+import org.example.routing.CachingRoutingProvider;
+import org.example.routing.GeocodeCache;
+import org.example.routing.OfflineRoutingProvider;
+import org.example.routing.OrsClient;
+import org.example.routing.OrsTransport;
+import org.example.routing.PairwiseCostCache;
+import org.example.routing.RoutingProvider;
+import org.example.routing.graph.RoadGraph;
+
+import java.io.IOException;
+
+/**
+ * One ORS client (connections, geocode rate limit) with the matrix and geocode caches,
+ * shared by every job of a headless run; matrices come from the offline road graph if one is set.
+ */
+final class SharedRouting implements AutoCloseable {
+
+    final RoutingProvider provider;
+    private final GeocodeCache geocodeCache; // null if disabled or unavailable
+
+    private SharedRouting(RoutingProvider provider, GeocodeCache geocodeCache) {
+        this.provider = provider;
+        this.geocodeCache = geocodeCache;
+    }
+
+    static SharedRouting open(AppConfig cfg) throws IOException {
+        PairwiseCostCache costCache = cfg.matrixCacheMaxEntries() > 0
+                ? new PairwiseCostCache(cfg.matrixCacheMaxEntries()) : null;
+        if (cfg.httpWarmUp()) OrsTransport.shared(cfg).warmUp();
+        RoutingProvider routing = new OrsClient(cfg, costCache);
+        GeocodeCache geocodeCache = null;
+        if (cfg.geocodeCacheEnabled()) {
+            try {
+                geocodeCache = GeocodeCache.open(cfg.geocodeCacheFile(), cfg.geocodeCacheMemoryEntries(),
+                        cfg.geocodeCacheMaxEntries(), cfg.geocodeCacheTtl());
+                routing = new CachingRoutingProvider(routing, geocodeCache);
+            } catch (IOException e) {
+                // кэш не обязателен: без него просто геокодируем через сеть
+                System.err.println("Кэш геокодинга недоступен: " + e.getMessage());
+            }
+        }
+        if (cfg.offlineGraphFile() != null) {
+            routing = new OfflineRoutingProvider(routing, RoadGraph.open(cfg.offlineGraphFile()), cfg);
+        }
+        return new SharedRouting(routing, geocodeCache);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (geocodeCache != null) geocodeCache.close();
+    }
+}
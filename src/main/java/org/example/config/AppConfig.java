@@ -1,18 +1,153 @@
 package org.example.config;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 import java.util.Properties;
 
 public final class AppConfig {
 
+    // optimizer defaults, also used by solvers and optimizers built without a config
+    /** optimizer.exact.maxStops */
+    public static final int DEFAULT_EXACT_MAX_STOPS = 16;
+    /** optimizer.neighborSearch.minStops */
+    public static final int DEFAULT_NEIGHBOR_SEARCH_MIN_STOPS = 150;
+    /** optimizer.neighborSearch.neighbors */
+    public static final int DEFAULT_NEIGHBORS = 10;
+    /** optimizer.lk.maxDepth */
+    public static final int DEFAULT_LK_MAX_DEPTH = 50;
+
     private final String orsApiKey;
     private final String orsProfile;
     private final String orsLanguage;
 
-    private AppConfig(String key, String profile, String lang) {
+    // geocoding stage
+    private final int geocodeConcurrency;
+    private final double geocodeRequestsPerSecond;
+
+    // matrix tiling
+    private final int matrixMaxElements;
+    private final int matrixConcurrency;
+    private final int directionsMaxWaypoints;
+    private final int directionsConcurrency;
+    private final int httpMaxRequests;
+    private final int httpMaxIdleConnections;
+    private final Duration httpKeepAlive;
+    private final boolean httpWarmUp;
+    private final double geocodeQuotaPerMinute;
+    private final double matrixQuotaPerMinute;
+    private final double directionsQuotaPerMinute;
+    private final int retryMaxAttempts;
+    private final double approxDetourFactor;
+    private final double approxSpeedKmh;
+    private final double approxLegSeconds;
+    private final boolean approxPreview;
+    private final boolean approxFallback;
+    private final int matrixCacheMaxEntries;
+    private final boolean matrixFloat32;
+
+    // offline routing graph (null = use ORS)
+    private final Path offlineGraphFile;
+    private final double offlineMaxSnapMeters;
+
+    // optimizer
+    private final String solverName;
+    private final int lkMaxDepth;
+    private final int exactMaxStops;
+    private final int startCandidates;
+    private final Duration anytimeBudget;
+    private final double anytimeTargetGap;
+    private final int neighborSearchMinStops;
+    private final int neighborSearchNeighbors;
+
+    // multi-courier mode
+    private final int fleetVehicles;
+    private final int fleetMaxStops;
+    private final Duration fleetMaxDuration;
+
+    // time windows in the address list are clock times; this is when the courier leaves
+    private final LocalTime departureTime;
+
+    // HTTP service mode
+    private final int serverPort;
+    private final int serverMaxConcurrent;
+    private final int serverMaxQueue;
+
+    // persistent geocode cache
+    private final boolean geocodeCacheEnabled;
+    private final Path geocodeCacheFile;
+    private final int geocodeCacheMemoryEntries;
+    private final int geocodeCacheMaxEntries;
+    private final Duration geocodeCacheTtl;
+
+    private AppConfig(String key, String profile, String lang, Properties p) {
         this.orsApiKey = key;
         this.orsProfile = profile;
         this.orsLanguage = lang;
+
+        this.geocodeConcurrency = Math.max(1, intProp(p, "ors.geocode.concurrency", 6));
+        this.geocodeRequestsPerSecond = doubleProp(p, "ors.geocode.requestsPerSecond", 5.0);
+
+        this.matrixMaxElements = Math.max(1, intProp(p, "ors.matrix.maxElements", 3_500));
+        this.matrixConcurrency = Math.max(1, intProp(p, "ors.matrix.concurrency", 4));
+        this.directionsMaxWaypoints = Math.max(2, intProp(p, "ors.directions.maxWaypoints", 50));
+        this.directionsConcurrency = Math.max(1, intProp(p, "ors.directions.concurrency", 4));
+        this.httpMaxRequests = Math.max(1, intProp(p, "ors.http.maxRequests", 64));
+        this.httpMaxIdleConnections = Math.max(1, intProp(p, "ors.http.maxIdleConnections", 8));
+        this.httpKeepAlive = Duration.ofSeconds(Math.max(1, intProp(p, "ors.http.keepAliveSeconds", 300)));
+        this.httpWarmUp = Boolean.parseBoolean(p.getProperty("ors.http.warmUp", "true").trim());
+        this.geocodeQuotaPerMinute = doubleProp(p, "ors.quota.geocode.perMinute", 100);
+        this.matrixQuotaPerMinute = doubleProp(p, "ors.quota.matrix.perMinute", 40);
+        this.directionsQuotaPerMinute = doubleProp(p, "ors.quota.directions.perMinute", 40);
+        this.retryMaxAttempts = Math.max(1, intProp(p, "ors.retry.maxAttempts", 5));
+        this.approxDetourFactor = Math.max(1.0, doubleProp(p, "approx.detourFactor", 1.35));
+        this.approxSpeedKmh = doubleProp(p, "approx.speedKmh", 25);
+        if (!(approxSpeedKmh > 0)) throw new IllegalStateException("Некорректное значение approx.speedKmh: " + approxSpeedKmh);
+        this.approxLegSeconds = Math.max(0.0, doubleProp(p, "approx.legSeconds", 30));
+        this.approxPreview = Boolean.parseBoolean(p.getProperty("approx.preview", "true").trim());
+        this.approxFallback = Boolean.parseBoolean(p.getProperty("approx.offlineFallback", "true").trim());
+        this.matrixCacheMaxEntries = intProp(p, "ors.matrix.cache.maxEntries", 4_000_000);
+        this.matrixFloat32 = "float".equalsIgnoreCase(p.getProperty("matrix.storage", "double").trim());
+
+        String graph = p.getProperty("offline.graphFile");
+        this.offlineGraphFile = (graph != null && !graph.isBlank()) ? Path.of(graph.trim()) : null;
+        this.offlineMaxSnapMeters = Math.max(1.0, doubleProp(p, "offline.maxSnapMeters", 500));
+
+        this.solverName = p.getProperty("optimizer.solver", "greedy-2opt").trim().toLowerCase(Locale.ROOT);
+        this.lkMaxDepth = intProp(p, "optimizer.lk.maxDepth", DEFAULT_LK_MAX_DEPTH);
+        this.exactMaxStops = intProp(p, "optimizer.exact.maxStops", DEFAULT_EXACT_MAX_STOPS);
+        this.startCandidates = intProp(p, "optimizer.start.candidates", 0);
+        this.anytimeBudget = Duration.ofMillis(intProp(p, "optimizer.anytime.budgetMillis", 2_000));
+        this.anytimeTargetGap = doubleProp(p, "optimizer.anytime.targetGap", 0.0);
+        this.neighborSearchMinStops = intProp(p, "optimizer.neighborSearch.minStops", DEFAULT_NEIGHBOR_SEARCH_MIN_STOPS);
+        this.neighborSearchNeighbors = Math.max(1, intProp(p, "optimizer.neighborSearch.neighbors", DEFAULT_NEIGHBORS));
+
+        this.fleetVehicles = Math.max(1, intProp(p, "fleet.vehicles", 1));
+        this.fleetMaxStops = intProp(p, "fleet.maxStopsPerVehicle", 0);
+        this.fleetMaxDuration = Duration.ofMinutes(intProp(p, "fleet.maxDurationMinutes", 0));
+
+        String departure = p.getProperty("route.departureTime", "09:00").trim();
+        try {
+            this.departureTime = LocalTime.parse(departure);
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException("Некорректное значение route.departureTime: " + departure);
+        }
+
+        this.serverPort = intProp(p, "server.port", 8080);
+        this.serverMaxConcurrent = Math.max(1, intProp(p, "server.maxConcurrent", Runtime.getRuntime().availableProcessors()));
+        this.serverMaxQueue = Math.max(0, intProp(p, "server.maxQueue", 1000));
+
+        this.geocodeCacheEnabled = Boolean.parseBoolean(p.getProperty("geocode.cache.enabled", "true").trim());
+        String file = p.getProperty("geocode.cache.file");
+        this.geocodeCacheFile = (file != null && !file.isBlank())
+                ? Path.of(file.trim())
+                : Path.of(System.getProperty("user.home"), ".courier-route-optimizer", "geocode-cache.bin");
+        this.geocodeCacheMemoryEntries = intProp(p, "geocode.cache.memoryEntries", 5_000);
+        this.geocodeCacheMaxEntries = intProp(p, "geocode.cache.maxEntries", 100_000);
+        this.geocodeCacheTtl = Duration.ofDays(intProp(p, "geocode.cache.ttlDays", 30));
     }
 
     public static AppConfig load() {
@@ -31,7 +166,7 @@ public final class AppConfig {
         String profile = p.getProperty("ors.profile", "driving-car");
         String lang = p.getProperty("ors.language", "ru");
 
-        return new AppConfig(key, profile, lang);
+        return new AppConfig(key, profile, lang, p);
     }
 
     private static String envOrProp(String env, String prop) {
@@ -41,7 +176,117 @@ public final class AppConfig {
         return null;
     }
 
+    private static int intProp(Properties p, String name, int def) {
+        String v = p.getProperty(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректное значение " + name + ": " + v);
+        }
+    }
+
+    private static double doubleProp(Properties p, String name, double def) {
+        String v = p.getProperty(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Double.parseDouble(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректное значение " + name + ": " + v);
+        }
+    }
+
     public String orsApiKey() { return orsApiKey; }
     public String orsProfile() { return orsProfile; }
     public String orsLanguage() { return orsLanguage; }
+
+    /** Max number of geocode requests in flight at once. */
+    public int geocodeConcurrency() { return geocodeConcurrency; }
+    /** Upper bound on geocode request rate; 0 or less means unlimited. */
+    public double geocodeRequestsPerSecond() { return geocodeRequestsPerSecond; }
+
+    /** Max sources × destinations cells per ORS matrix request; larger matrices are split into blocks. */
+    public int matrixMaxElements() { return matrixMaxElements; }
+    /** Max matrix block requests in flight at once. */
+    public int matrixConcurrency() { return matrixConcurrency; }
+    /** Max waypoints per ORS directions request; longer routes are fetched in overlapping chunks. */
+    public int directionsMaxWaypoints() { return directionsMaxWaypoints; }
+    /** Max directions chunk requests in flight at once. */
+    public int directionsConcurrency() { return directionsConcurrency; }
+    /** Max ORS requests in flight for one client, across all callers sharing it. */
+    public int httpMaxRequests() { return httpMaxRequests; }
+    /** Idle ORS connections kept open for reuse. */
+    public int httpMaxIdleConnections() { return httpMaxIdleConnections; }
+    /** How long an idle connection is kept. */
+    public Duration httpKeepAlive() { return httpKeepAlive; }
+    /** Open a connection to ORS at startup so the first run skips the handshake. */
+    public boolean httpWarmUp() { return httpWarmUp; }
+    /** Plan limit for geocode requests per minute, over the whole app; 0 or less means unlimited. */
+    public double geocodeQuotaPerMinute() { return geocodeQuotaPerMinute; }
+    /** Plan limit for matrix requests per minute. */
+    public double matrixQuotaPerMinute() { return matrixQuotaPerMinute; }
+    /** Plan limit for directions requests per minute. */
+    public double directionsQuotaPerMinute() { return directionsQuotaPerMinute; }
+    /** Attempts per ORS call when the answer is 429, 5xx or a network error (1 = no retries). */
+    public int retryMaxAttempts() { return retryMaxAttempts; }
+
+    /** Road distance / straight-line distance for the approximate matrix. */
+    public double approxDetourFactor() { return approxDetourFactor; }
+    /** Average speed of the approximate matrix. */
+    public double approxSpeedKmh() { return approxSpeedKmh; }
+    /** Fixed time per leg (parking, turns) of the approximate matrix. */
+    public double approxLegSeconds() { return approxLegSeconds; }
+    /** Show a route on the approximate matrix while the ORS matrix is loading. */
+    public boolean approxPreview() { return approxPreview; }
+    /** Use the approximate matrix when ORS cannot be reached. */
+    public boolean approxFallback() { return approxFallback; }
+    /** Max matrix cells kept in the session's pairwise cost cache; 0 disables the cache. */
+    public int matrixCacheMaxEntries() { return matrixCacheMaxEntries; }
+    /** Store cost matrices as float32 (half the memory) instead of double. */
+    public boolean matrixFloat32() { return matrixFloat32; }
+
+    /** Road graph for offline matrices and directions (see import-graph); null = ORS. */
+    public Path offlineGraphFile() { return offlineGraphFile; }
+    /** Max distance from an address to the nearest road of the offline graph. */
+    public double offlineMaxSnapMeters() { return offlineMaxSnapMeters; }
+
+    /** Route solver: "greedy-2opt", "lin-kernighan" or "anytime". */
+    public String solverName() { return solverName; }
+    /** Max steps in one Lin–Kernighan move chain. */
+    public int lkMaxDepth() { return lkMaxDepth; }
+    /** Routes of up to this many stops (start included) are solved exactly (0 = never; at most 20 free stops). */
+    public int exactMaxStops() { return exactMaxStops; }
+    /** Without a start address: how many most peripheral stops to try as start (0 = all). */
+    public int startCandidates() { return startCandidates; }
+    /** Wall-clock budget of the anytime solver. */
+    public Duration anytimeBudget() { return anytimeBudget; }
+    /** Anytime solver stops early within this relative gap of the lower bound (0 = use the whole budget). */
+    public double anytimeTargetGap() { return anytimeTargetGap; }
+    /** From this many stops on, local search uses candidate lists instead of the full 2-opt scan. */
+    public int neighborSearchMinStops() { return neighborSearchMinStops; }
+    /** Candidate list size K for the neighbor-list local search. */
+    public int neighborSearchNeighbors() { return neighborSearchNeighbors; }
+
+    /** Couriers that share the stops in multi-courier mode. */
+    public int fleetVehicles() { return fleetVehicles; }
+    /** Max delivery stops per courier (0 = no cap). */
+    public int fleetMaxStops() { return fleetMaxStops; }
+    /** Max route duration per courier (zero = no cap). */
+    public Duration fleetMaxDuration() { return fleetMaxDuration; }
+
+    /** Clock time the courier leaves the start; delivery windows are counted from it. */
+    public LocalTime departureTime() { return departureTime; }
+
+    public int serverPort() { return serverPort; }
+    /** Route solves the HTTP service runs at the same time; defaults to the number of CPU cores. */
+    public int serverMaxConcurrent() { return serverMaxConcurrent; }
+    /** Requests admitted beyond {@link #serverMaxConcurrent()} (waiting on the network or for a solve); then 503. */
+    public int serverMaxQueue() { return serverMaxQueue; }
+
+    public boolean geocodeCacheEnabled() { return geocodeCacheEnabled; }
+    public Path geocodeCacheFile() { return geocodeCacheFile; }
+    public int geocodeCacheMemoryEntries() { return geocodeCacheMemoryEntries; }
+    public int geocodeCacheMaxEntries() { return geocodeCacheMaxEntries; }
+    /** How long a cached geocode is trusted before the address is geocoded again. */
+    public Duration geocodeCacheTtl() { return geocodeCacheTtl; }
 }
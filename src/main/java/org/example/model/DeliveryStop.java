@@ -0,0 +1,38 @@
+package org.example.model;
+
+/**
+ * A delivery address with an optional time window and service time.
+ * Times are seconds after the courier leaves the start; an open window is [0, +∞).
+ */
+public class DeliveryStop {
+    private final String address;
+    private final double windowStartSeconds;
+    private final double windowEndSeconds;
+    private final double serviceSeconds;
+
+    public DeliveryStop(String address) {
+        this(address, 0.0, Double.POSITIVE_INFINITY, 0.0);
+    }
+
+    public DeliveryStop(String address, double windowStartSeconds, double windowEndSeconds, double serviceSeconds) {
+        if (windowEndSeconds < windowStartSeconds) {
+            throw new IllegalArgumentException("Окно доставки заканчивается раньше, чем начинается: " + address);
+        }
+        this.address = address;
+        this.windowStartSeconds = Math.max(0.0, windowStartSeconds);
+        this.windowEndSeconds = windowEndSeconds;
+        this.serviceSeconds = Math.max(0.0, serviceSeconds);
+    }
+
+    public String address() { return address; }
+    /** Earliest service start; the courier waits if they arrive earlier. */
+    public double windowStartSeconds() { return windowStartSeconds; }
+    /** Latest service start. */
+    public double windowEndSeconds() { return windowEndSeconds; }
+    /** Time spent at the stop (parking, handover). */
+    public double serviceSeconds() { return serviceSeconds; }
+
+    public boolean hasWindow() {
+        return windowStartSeconds > 0.0 || windowEndSeconds != Double.POSITIVE_INFINITY;
+    }
+}
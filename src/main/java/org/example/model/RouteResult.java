@@ -6,14 +6,40 @@ public class RouteResult {
     private final List<Location> orderedStops; // includes start if provided
     private final double totalDistanceMeters;
     private final double totalDurationSeconds;
+    private final SolveStats solveStats; // null unless solved with a time budget
+    private final double[] serviceStartSeconds; // null unless stops have time windows / service times
+    private final boolean approximate;
 
     public RouteResult(List<Location> orderedStops, double totalDistanceMeters, double totalDurationSeconds) {
+        this(orderedStops, totalDistanceMeters, totalDurationSeconds, null);
+    }
+
+    public RouteResult(List<Location> orderedStops, double totalDistanceMeters, double totalDurationSeconds,
+                       SolveStats solveStats) {
+        this(orderedStops, totalDistanceMeters, totalDurationSeconds, solveStats, null);
+    }
+
+    public RouteResult(List<Location> orderedStops, double totalDistanceMeters, double totalDurationSeconds,
+                       SolveStats solveStats, double[] serviceStartSeconds) {
+        this(orderedStops, totalDistanceMeters, totalDurationSeconds, solveStats, serviceStartSeconds, false);
+    }
+
+    public RouteResult(List<Location> orderedStops, double totalDistanceMeters, double totalDurationSeconds,
+                       SolveStats solveStats, double[] serviceStartSeconds, boolean approximate) {
         this.orderedStops = orderedStops;
         this.totalDistanceMeters = totalDistanceMeters;
         this.totalDurationSeconds = totalDurationSeconds;
+        this.solveStats = solveStats;
+        this.serviceStartSeconds = serviceStartSeconds;
+        this.approximate = approximate;
     }
 
     public List<Location> orderedStops() { return orderedStops; }
     public double totalDistanceMeters() { return totalDistanceMeters; }
     public double totalDurationSeconds() { return totalDurationSeconds; }
+    public SolveStats solveStats() { return solveStats; }
+    /** When service starts at each of {@link #orderedStops()}, seconds after departure (waiting included). */
+    public double[] serviceStartSeconds() { return serviceStartSeconds; }
+    /** Ordered and totalled on straight-line estimates, not road data (preview or offline). */
+    public boolean isApproximate() { return approximate; }
 }
@@ -0,0 +1,41 @@
+package org.example.model;
+
+/**
+ * How a time-budgeted (anytime) solve went: work done and solution quality over time.
+ */
+public class SolveStats {
+    private final long iterations;
+    private final long improvements;
+    private final long restarts;
+    private final long elapsedMillis;
+    private final double initialCost;
+    private final double bestCost;
+    private final double lowerBound;      // 0 if not computed
+    private final boolean budgetExhausted; // false if stopped on the target gap
+
+    public SolveStats(long iterations, long improvements, long restarts, long elapsedMillis,
+                      double initialCost, double bestCost, double lowerBound, boolean budgetExhausted) {
+        this.iterations = iterations;
+        this.improvements = improvements;
+        this.restarts = restarts;
+        this.elapsedMillis = elapsedMillis;
+        this.initialCost = initialCost;
+        this.bestCost = bestCost;
+        this.lowerBound = lowerBound;
+        this.budgetExhausted = budgetExhausted;
+    }
+
+    public long iterations() { return iterations; }
+    public long improvements() { return improvements; }
+    public long restarts() { return restarts; }
+    public long elapsedMillis() { return elapsedMillis; }
+    public double initialCost() { return initialCost; }
+    public double bestCost() { return bestCost; }
+    public double lowerBound() { return lowerBound; }
+    public boolean budgetExhausted() { return budgetExhausted; }
+
+    /** Relative gap to the lower bound, e.g. 0.05 = at most 5% above optimal; NaN if unknown. */
+    public double gap() {
+        return lowerBound > 0 ? (bestCost - lowerBound) / lowerBound : Double.NaN;
+    }
+}
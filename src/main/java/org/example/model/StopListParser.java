@@ -0,0 +1,78 @@
+package org.example.model;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the address list format shared by the window and the batch mode: one address per line,
+ * optionally followed by a delivery window and the minutes spent at the stop,
+ * e.g. "Тверская 1, Москва | 10:00-12:00 | 5". Blank lines are skipped.
+ */
+public final class StopListParser {
+
+    public static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("H:mm");
+
+    private StopListParser() {}
+
+    /** @param departure window clock times are counted from it */
+    public static List<DeliveryStop> parse(String raw, LocalTime departure) {
+        List<DeliveryStop> out = new ArrayList<>();
+        for (String line : lines(raw)) {
+            String[] parts = line.split("\\|", -1);
+            if (parts.length > 3) throw new IllegalArgumentException("Не понял строку: " + line);
+
+            String address = parts[0].trim();
+            double from = 0.0;
+            double to = Double.POSITIVE_INFINITY;
+            double service = 0.0;
+            try {
+                if (parts.length > 1 && !parts[1].isBlank()) {
+                    String[] w = parts[1].trim().split("-");
+                    if (w.length != 2) throw new IllegalArgumentException("Не понял окно доставки: " + line);
+                    LocalTime start = LocalTime.parse(w[0].trim(), CLOCK);
+                    LocalTime end = LocalTime.parse(w[1].trim(), CLOCK);
+                    if (end.isBefore(start)) {
+                        throw new IllegalArgumentException("Окно доставки " + window(start, end)
+                                + " заканчивается раньше, чем начинается (окна через полночь не поддерживаются): " + line);
+                    }
+                    if (end.isBefore(departure)) {
+                        throw new IllegalArgumentException("Окно доставки " + window(start, end)
+                                + " заканчивается до выезда в " + CLOCK.format(departure) + ": " + line);
+                    }
+                    from = secondsAfter(departure, start);
+                    to = secondsAfter(departure, end);
+                }
+                if (parts.length > 2 && !parts[2].isBlank()) {
+                    service = Double.parseDouble(parts[2].trim().replace(',', '.')) * 60.0;
+                }
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Не понял строку: " + line);
+            }
+            out.add(new DeliveryStop(address, from, to, service));
+        }
+        return out;
+    }
+
+    /** Non-blank lines, trimmed. */
+    public static List<String> lines(String raw) {
+        List<String> out = new ArrayList<>();
+        if (raw == null) return out;
+        for (String line : raw.split("\\R")) {
+            String t = line.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static double secondsAfter(LocalTime departure, LocalTime clock) {
+        return Duration.between(departure, clock).getSeconds();
+    }
+
+    private static String window(LocalTime start, LocalTime end) {
+        return CLOCK.format(start) + "-" + CLOCK.format(end);
+    }
+}
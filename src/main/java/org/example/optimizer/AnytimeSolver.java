@@ -0,0 +1,198 @@
+package org.example.optimizer;
+
+import org.example.config.AppConfig;
+import org.example.model.SolveStats;
+import org.example.routing.CostMatrix;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Time-budgeted solver (iterated local search). Builds a greedy path, improves it with
+ * {@link NeighborLocalSearch}, then keeps perturbing it with random double-bridge moves and
+ * re-optimizing around the changed spots until the budget runs out, the target gap to a lower
+ * bound is reached, or restarts stop paying off. The best path seen so far is always returned.
+ */
+public class AnytimeSolver implements RouteSolver {
+
+    /** Best path found and statistics of the run. */
+    public static final class Outcome {
+        private final int[] order;
+        private final SolveStats stats;
+
+        Outcome(int[] order, SolveStats stats) {
+            this.order = order;
+            this.stats = stats;
+        }
+
+        public int[] order() { return order; }
+        public SolveStats stats() { return stats; }
+    }
+
+    private static final double EPS = 1e-9;
+    /** Max length of each segment swapped by a double-bridge kick (keeps kicks local). */
+    private static final int MAX_KICK_SEGMENT = 50;
+    /** Stop early after this many restarts in a row without a new best. */
+    private static final int MAX_FRUITLESS_RESTARTS = 20;
+
+    private final int neighbors;
+    private final int startCandidates;
+    private final Duration defaultBudget;
+    private final double defaultTargetGap;
+    private final long seed;
+
+    public AnytimeSolver() {
+        this(AppConfig.DEFAULT_NEIGHBORS, 0, Duration.ofSeconds(2), 0.0);
+    }
+
+    /**
+     * @param defaultBudget    budget used by {@link #solve(CostMatrix, int)}
+     * @param defaultTargetGap stop once within this relative gap of the lower bound; 0 = use the whole budget
+     */
+    public AnytimeSolver(int neighbors, int startCandidates, Duration defaultBudget, double defaultTargetGap) {
+        this.neighbors = neighbors;
+        this.startCandidates = startCandidates;
+        this.defaultBudget = defaultBudget;
+        this.defaultTargetGap = defaultTargetGap;
+        this.seed = 42L;
+    }
+
+    public Duration defaultBudget() { return defaultBudget; }
+    public double defaultTargetGap() { return defaultTargetGap; }
+
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx) {
+        return solve(cost, startIdx, defaultBudget, defaultTargetGap).order();
+    }
+
+    public Outcome solve(CostMatrix cost, int startIdx, Duration budget, double targetGap) {
+        return solve(cost, startIdx, Deadline.after(budget), targetGap);
+    }
+
+    Outcome solve(CostMatrix cost, int startIdx, Deadline deadline, double targetGap) {
+        return solve(cost, startIdx, deadline, targetGap, Progress.NONE);
+    }
+
+    /** @param progress gets the constructed path, the first local optimum and every new best */
+    Outcome solve(CostMatrix cost, int startIdx, Deadline deadline, double targetGap, Progress progress) {
+        long t0 = System.nanoTime();
+        int n = cost.size();
+
+        int[] initial = startIdx >= 0
+                ? PathConstruction.nearestNeighborPathFromStart(startIdx, cost)
+                : StartSelection.bestStartByGreedy(cost, startCandidates, deadline);
+        progress.improved(initial);
+        double initialCost = PathConstruction.totalCost(initial, cost);
+        double lb = targetGap > 0 ? PathBounds.lowerBound(cost, startIdx) : 0.0;
+
+        if (n < 4) {
+            int[] o = TwoOpt.improvePath(initial, cost);
+            double c = PathConstruction.totalCost(o, cost);
+            return new Outcome(o, new SolveStats(0, 0, 0, elapsedMillis(t0), initialCost, c, lb, false));
+        }
+
+        NeighborLists nbrs = NeighborLists.build(cost, neighbors);
+        boolean freeStart = startIdx < 0;
+        Random rnd = new Random(seed);
+
+        int[] current = NeighborLocalSearch.improvePath(initial.clone(), cost, nbrs, null, deadline, null, progress);
+        double curCost = PathConstruction.totalCost(current, cost);
+        int[] best = current.clone();
+        double bestCost = curCost;
+
+        long iterations = 0;
+        long improvements = 0;
+        long restarts = 0;
+        int stall = 0;
+        int fruitlessRestarts = 0;
+        int stallLimit = Math.max(50, n);
+        boolean budgetExhausted = false;
+
+        while (true) {
+            if (lb > 0 && bestCost - lb <= targetGap * lb) break;
+            if (deadline.passed()) {
+                budgetExhausted = true;
+                break;
+            }
+
+            int[] cand = current.clone();
+            int[] touched = doubleBridge(cand, freeStart, rnd);
+            NeighborLocalSearch.improvePath(cand, cost, nbrs, touched, deadline);
+            iterations++;
+
+            double c = PathConstruction.totalCost(cand, cost);
+            if (c < bestCost - EPS) {
+                best = cand.clone();
+                bestCost = c;
+                progress.improved(best);
+                improvements++;
+                stall = 0;
+                fruitlessRestarts = 0;
+            } else {
+                stall++;
+            }
+            if (c <= curCost + EPS) {
+                current = cand;
+                curCost = c;
+            }
+
+            if (stall >= stallLimit) {
+                if (++fruitlessRestarts > MAX_FRUITLESS_RESTARTS) break;
+                // restart from the best path with a stronger kick
+                current = best.clone();
+                int[] t1 = doubleBridge(current, freeStart, rnd);
+                int[] t2 = doubleBridge(current, freeStart, rnd);
+                int[] t3 = doubleBridge(current, freeStart, rnd);
+                NeighborLocalSearch.improvePath(current, cost, nbrs, concat(t1, t2, t3), deadline);
+                curCost = PathConstruction.totalCost(current, cost);
+                restarts++;
+                stall = 0;
+            }
+        }
+
+        SolveStats stats = new SolveStats(iterations, improvements, restarts, elapsedMillis(t0),
+                initialCost, bestCost, lb, budgetExhausted);
+        return new Outcome(best, stats);
+    }
+
+    /**
+     * Reorders A B C D into A C B D (no reversals, so exact on asymmetric costs). With a fixed start
+     * A holds at least the start. Returns the stops next to the four changed edges.
+     */
+    private static int[] doubleBridge(int[] order, boolean freeStart, Random rnd) {
+        int n = order.length;
+        int lo = freeStart ? 0 : 1;
+        int p1 = lo + rnd.nextInt(n - lo - 1);
+        int p2 = p1 + 1 + rnd.nextInt(Math.min(MAX_KICK_SEGMENT, n - 1 - p1));
+        int p3 = p2 + 1 + rnd.nextInt(Math.min(MAX_KICK_SEGMENT, n - p2));
+
+        int[] touched = {
+                p1 > 0 ? order[p1 - 1] : order[p1],
+                order[p1], order[p2 - 1], order[p2], order[p3 - 1],
+                p3 < n ? order[p3] : order[p3 - 1]
+        };
+
+        int[] tmp = new int[p3 - p1];
+        int lenC = p3 - p2;
+        System.arraycopy(order, p2, tmp, 0, lenC);
+        System.arraycopy(order, p1, tmp, lenC, p2 - p1);
+        System.arraycopy(tmp, 0, order, p1, tmp.length);
+        return touched;
+    }
+
+    private static int[] concat(int[]... parts) {
+        int len = 0;
+        for (int[] p : parts) len += p.length;
+        int[] out = new int[len];
+        int k = 0;
+        for (int[] p : parts) {
+            System.arraycopy(p, 0, out, k, p.length);
+            k += p.length;
+        }
+        return out;
+    }
+
+    private static long elapsedMillis(long t0) {
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.optimizer;
+
+import java.time.Duration;
+
+/** Wall-clock limit for a solve, based on System.nanoTime(). */
+final class Deadline {
+
+    private static final Deadline NONE = new Deadline(0L, false);
+
+    private final long atNanos;
+    private final boolean limited;
+
+    private Deadline(long atNanos, boolean limited) {
+        this.atNanos = atNanos;
+        this.limited = limited;
+    }
+
+    static Deadline none() {
+        return NONE;
+    }
+
+    static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    boolean passed() {
+        return limited && System.nanoTime() - atNanos >= 0;
+    }
+
+    /** Nanoseconds left (0 once passed); Long.MAX_VALUE without a limit. */
+    long remainingNanos() {
+        return limited ? Math.max(0L, atNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+}
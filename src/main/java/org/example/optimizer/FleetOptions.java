@@ -0,0 +1,34 @@
+package org.example.optimizer;
+
+import org.example.config.AppConfig;
+
+import java.time.Duration;
+
+/**
+ * Multi-courier settings: how many vehicles share the day's stops and optional per-vehicle caps.
+ */
+public final class FleetOptions {
+
+    private final int vehicles;
+    private final int maxStopsPerVehicle;
+    private final Duration maxDurationPerVehicle;
+
+    /**
+     * @param maxStopsPerVehicle    0 = no cap
+     * @param maxDurationPerVehicle null or zero = no cap
+     */
+    public FleetOptions(int vehicles, int maxStopsPerVehicle, Duration maxDurationPerVehicle) {
+        if (vehicles < 1) throw new IllegalArgumentException("Нужен хотя бы один курьер.");
+        this.vehicles = vehicles;
+        this.maxStopsPerVehicle = Math.max(0, maxStopsPerVehicle);
+        this.maxDurationPerVehicle = maxDurationPerVehicle == null ? Duration.ZERO : maxDurationPerVehicle;
+    }
+
+    public static FleetOptions fromConfig(AppConfig cfg) {
+        return new FleetOptions(cfg.fleetVehicles(), cfg.fleetMaxStops(), cfg.fleetMaxDuration());
+    }
+
+    public int vehicles() { return vehicles; }
+    public int maxStopsPerVehicle() { return maxStopsPerVehicle; }
+    public Duration maxDurationPerVehicle() { return maxDurationPerVehicle; }
+}
@@ -0,0 +1,451 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits the stops of one matrix between several couriers (all leaving from the depot, if any).
+ *
+ * 1. Partition: far-apart seed stops, then every stop goes to the nearest seed that still has room
+ *    (stops with the most to lose first), and seeds move to their cluster's medoid a few times.
+ * 2. Each cluster is ordered by the route solver; clusters are solved concurrently on a worker pool.
+ * 3. Inter-route exchange: relocate a stop next to a candidate neighbor in another route, or swap
+ *    the two; a move is taken if it lowers the cap overrun, or the total cost at equal overrun.
+ *    Routes changed by the exchange are re-ordered (again in parallel), and the two steps repeat.
+ *
+ * Without a stop cap clusters are still kept within {@link #BALANCE_SLACK} of an even split:
+ * a single courier driving to everything is usually the cheapest sum, and not what a depot wants.
+ */
+final class FleetPlanner {
+
+    private static final double EPS = 1e-9;
+    private static final double BALANCE_SLACK = 1.25;
+    private static final int NEIGHBORS = 10;
+    private static final int MEDOID_ROUNDS = 3;
+    private static final int MAX_ROUNDS = 5;
+    private static final int MAX_EXCHANGE_PASSES = 50;
+
+    private final CostMatrix cost;
+    private final int depot;
+    private final int head; // 1 if every route starts with the depot
+    private final RouteSolver solver;
+    private final int stopCap;
+    private final double durationCap;
+
+    private int[][] route;
+    private int[] len;
+    private double[] routeCost;
+    private final int[] routeOf;
+    private final int[] pos;
+
+    private FleetPlanner(CostMatrix cost, int depot, RouteSolver solver, int stopCap, double durationCap) {
+        this.cost = cost;
+        this.depot = depot;
+        this.head = depot >= 0 ? 1 : 0;
+        this.solver = solver;
+        this.stopCap = stopCap;
+        this.durationCap = durationCap;
+        this.routeOf = new int[cost.size()];
+        this.pos = new int[cost.size()];
+        Arrays.fill(routeOf, -1);
+    }
+
+    /**
+     * @param depot  index every route starts from, or -1 to let each route choose its start
+     * @param solver orders a single route
+     * @return visiting order per courier (the depot first, if any); empty routes are dropped
+     */
+    static List<int[]> plan(CostMatrix cost, int depot, FleetOptions opts, RouteSolver solver) throws Exception {
+        int n = cost.size();
+        int customers = depot >= 0 ? n - 1 : n;
+        if (customers <= 0) {
+            List<int[]> only = new ArrayList<>();
+            if (depot >= 0) only.add(new int[]{depot});
+            return only;
+        }
+
+        int k = Math.min(opts.vehicles(), customers);
+        int maxStops = opts.maxStopsPerVehicle();
+        if (maxStops > 0 && (long) maxStops * k < customers) {
+            throw new RuntimeException(String.format(
+                    "Слишком много адресов: %d курьеров по %d адресов не хватит на %d.", k, maxStops, customers));
+        }
+        int cap = maxStops > 0 ? maxStops : (int) Math.ceil(BALANCE_SLACK * customers / k);
+        long capSeconds = opts.maxDurationPerVehicle().getSeconds();
+        double durationCap = capSeconds > 0 ? capSeconds : Double.POSITIVE_INFINITY;
+
+        FleetPlanner fp = new FleetPlanner(cost, depot, solver, cap, durationCap);
+        fp.partition(k);
+
+        boolean[] changed = new boolean[k];
+        Arrays.fill(changed, true);
+        fp.solveRoutes(changed);
+        NeighborLists nbrs = NeighborLists.build(cost, NEIGHBORS);
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            Arrays.fill(changed, false);
+            if (!fp.exchange(nbrs, changed)) break;
+            fp.solveRoutes(changed);
+        }
+
+        for (int r = 0; r < k; r++) {
+            if (fp.routeCost[r] > durationCap + EPS) {
+                throw new RuntimeException(String.format(
+                        "Не удалось уложить маршруты в %d мин: у курьера %d выходит %.0f мин. Добавь курьеров.",
+                        capSeconds / 60, r + 1, fp.routeCost[r] / 60.0));
+            }
+        }
+
+        List<int[]> out = new ArrayList<>(k);
+        for (int r = 0; r < k; r++) {
+            if (fp.len[r] > fp.head) out.add(Arrays.copyOf(fp.route[r], fp.len[r]));
+        }
+        return out;
+    }
+
+    // ---------- partition ----------
+
+    private void partition(int k) {
+        int n = cost.size();
+        int[] stops = new int[n - head];
+        for (int i = 0, c = 0; i < n; i++) if (i != depot) stops[c++] = i;
+
+        int[] seeds = farthestSeeds(stops, k);
+        int[] cluster = new int[n];
+        for (int round = 0; round <= MEDOID_ROUNDS; round++) {
+            assign(stops, seeds, cluster);
+            if (round == MEDOID_ROUNDS || !moveSeedsToMedoids(stops, seeds, cluster)) break;
+        }
+
+        route = new int[k][n];
+        len = new int[k];
+        routeCost = new double[k];
+        for (int r = 0; r < k; r++) if (depot >= 0) route[r][len[r]++] = depot;
+        for (int v : stops) {
+            int r = cluster[v];
+            routeOf[v] = r;
+            pos[v] = len[r];
+            route[r][len[r]++] = v;
+        }
+    }
+
+    /** First seed: the stop farthest from the depot (or from everything); then farthest from all seeds. */
+    private int[] farthestSeeds(int[] stops, int k) {
+        int[] seeds = new int[k];
+        double[] near = new double[cost.size()];
+        int first = stops[0];
+        double far = -1.0;
+        for (int v : stops) {
+            double d = 0.0;
+            if (depot >= 0) {
+                d = dist(depot, v);
+            } else {
+                for (int u : stops) d += dist(u, v);
+            }
+            if (d > far) {
+                far = d;
+                first = v;
+            }
+        }
+        seeds[0] = first;
+        for (int v : stops) near[v] = dist(first, v);
+
+        for (int s = 1; s < k; s++) {
+            int pick = -1;
+            far = -1.0;
+            for (int v : stops) {
+                if (near[v] > far) {
+                    far = near[v];
+                    pick = v;
+                }
+            }
+            seeds[s] = pick;
+            for (int v : stops) near[v] = Math.min(near[v], dist(pick, v));
+        }
+        return seeds;
+    }
+
+    /** Capacitated nearest-seed assignment, stops with the largest regret (2nd − 1st choice) first. */
+    private void assign(int[] stops, int[] seeds, int[] cluster) {
+        int k = seeds.length;
+        Integer[] byRegret = new Integer[stops.length];
+        double[] regret = new double[stops.length];
+        for (int t = 0; t < stops.length; t++) {
+            byRegret[t] = t;
+            double b1 = Double.POSITIVE_INFINITY;
+            double b2 = Double.POSITIVE_INFINITY;
+            for (int seed : seeds) {
+                double d = dist(seed, stops[t]);
+                if (d < b1) {
+                    b2 = b1;
+                    b1 = d;
+                } else if (d < b2) {
+                    b2 = d;
+                }
+            }
+            regret[t] = k == 1 ? 0.0 : b2 - b1;
+        }
+        Arrays.sort(byRegret, (a, b) -> Double.compare(regret[b], regret[a]));
+
+        int[] size = new int[k];
+        for (int t : byRegret) {
+            int v = stops[t];
+            int bestR = -1;
+            double bestD = Double.POSITIVE_INFINITY;
+            for (int r = 0; r < k; r++) {
+                if (size[r] >= stopCap) continue;
+                double d = dist(seeds[r], v);
+                if (bestR < 0 || d < bestD) {
+                    bestD = d;
+                    bestR = r;
+                }
+            }
+            cluster[v] = bestR;
+            size[bestR]++;
+        }
+    }
+
+    /** @return true if any seed moved */
+    private boolean moveSeedsToMedoids(int[] stops, int[] seeds, int[] cluster) {
+        boolean moved = false;
+        for (int r = 0; r < seeds.length; r++) {
+            int medoid = seeds[r];
+            double best = Double.POSITIVE_INFINITY;
+            for (int v : stops) {
+                if (cluster[v] != r) continue;
+                double sum = 0.0;
+                for (int u : stops) if (cluster[u] == r) sum += dist(v, u);
+                if (sum < best) {
+                    best = sum;
+                    medoid = v;
+                }
+            }
+            if (medoid != seeds[r]) {
+                seeds[r] = medoid;
+                moved = true;
+            }
+        }
+        return moved;
+    }
+
+    // ---------- per-route solving ----------
+
+    /** Re-orders the flagged routes concurrently, keeping the old order where it was cheaper. */
+    private void solveRoutes(boolean[] changed) throws Exception {
+        List<Integer> todo = new ArrayList<>();
+        for (int r = 0; r < changed.length; r++) {
+            if (changed[r]) todo.add(r);
+            else routeCost[r] = pathCost(r);
+        }
+        if (todo.isEmpty()) return;
+
+        int threads = Math.min(todo.size(), Runtime.getRuntime().availableProcessors());
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "route-solver-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<>(todo.size());
+            for (int r : todo) {
+                futures.add(pool.submit(() -> {
+                    solveRoute(r);
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    Throwable c = e.getCause();
+                    if (c instanceof Exception) throw (Exception) c;
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // each task touches only its own route's entries, so no locking is needed
+    private void solveRoute(int r) {
+        int m = len[r];
+        int[] nodes = Arrays.copyOf(route[r], m);
+        double before = pathCost(r);
+
+        CostMatrix sub = CostMatrix.dense(m, false);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) sub.set(i, j, cost.get(nodes[i], nodes[j]));
+        }
+        int[] order = solver.solve(sub, depot >= 0 ? 0 : -1);
+
+        double after = 0.0;
+        for (int t = 0; t + 1 < m; t++) after += edge(nodes[order[t]], nodes[order[t + 1]]);
+        if (after < before) {
+            for (int t = 0; t < m; t++) {
+                int v = nodes[order[t]];
+                route[r][t] = v;
+                pos[v] = t;
+            }
+        }
+        routeCost[r] = Math.min(before, after);
+    }
+
+    private double pathCost(int r) {
+        double sum = 0.0;
+        for (int t = 0; t + 1 < len[r]; t++) sum += edge(route[r][t], route[r][t + 1]);
+        return sum;
+    }
+
+    // ---------- inter-route exchange ----------
+
+    private boolean exchange(NeighborLists nbrs, boolean[] changed) {
+        boolean any = false;
+        for (int pass = 0; pass < MAX_EXCHANGE_PASSES; pass++) {
+            boolean improved = false;
+            for (int v = 0; v < cost.size(); v++) {
+                if (v == depot) continue;
+                if (tryRelocate(v, nbrs, changed) || trySwap(v, nbrs, changed)) improved = true;
+            }
+            if (!improved) break;
+            any = true;
+        }
+        return any;
+    }
+
+    private boolean tryRelocate(int v, NeighborLists nbrs, boolean[] changed) {
+        int a = routeOf[v];
+        if (len[a] - head <= 1) return false; // keep every courier busy
+        double removeDelta = removalDelta(a, pos[v]);
+
+        for (int r = 0; r < nbrs.k(); r++) {
+            int u = nbrs.get(v, r);
+            int b = routeOf[u];
+            if (b < 0 || b == a || len[b] - head >= stopCap) continue;
+
+            // right after u, or right before it
+            for (int at = pos[u] + 1; at >= pos[u]; at--) {
+                if (at < head) continue;
+                double insertDelta = insertionDelta(b, at, v);
+                if (!better(a, removeDelta, b, insertDelta)) continue;
+
+                remove(a, pos[v]);
+                insert(b, at, v);
+                routeCost[a] += removeDelta;
+                routeCost[b] += insertDelta;
+                changed[a] = true;
+                changed[b] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean trySwap(int v, NeighborLists nbrs, boolean[] changed) {
+        int a = routeOf[v];
+        for (int r = 0; r < nbrs.k(); r++) {
+            int u = nbrs.get(v, r);
+            int b = routeOf[u];
+            if (b < 0 || b == a) continue;
+
+            double deltaA = replacementDelta(a, pos[v], u);
+            double deltaB = replacementDelta(b, pos[u], v);
+            if (!better(a, deltaA, b, deltaB)) continue;
+
+            int pv = pos[v];
+            int pu = pos[u];
+            route[a][pv] = u;
+            route[b][pu] = v;
+            pos[u] = pv;
+            pos[v] = pu;
+            routeOf[u] = a;
+            routeOf[v] = b;
+            routeCost[a] += deltaA;
+            routeCost[b] += deltaB;
+            changed[a] = true;
+            changed[b] = true;
+            return true;
+        }
+        return false;
+    }
+
+    /** Lower cap overrun wins; at equal overrun, lower total cost. */
+    private boolean better(int a, double deltaA, int b, double deltaB) {
+        double overBefore = overrun(routeCost[a]) + overrun(routeCost[b]);
+        double overAfter = overrun(routeCost[a] + deltaA) + overrun(routeCost[b] + deltaB);
+        if (overAfter < overBefore - EPS) return true;
+        return overAfter <= overBefore + EPS && deltaA + deltaB < -EPS;
+    }
+
+    private double overrun(double c) {
+        return c > durationCap ? c - durationCap : 0.0;
+    }
+
+    private double removalDelta(int r, int i) {
+        int[] p = route[r];
+        int v = p[i];
+        boolean hasPrev = i > 0;
+        boolean hasNext = i + 1 < len[r];
+        double d = 0.0;
+        if (hasPrev) d -= edge(p[i - 1], v);
+        if (hasNext) d -= edge(v, p[i + 1]);
+        if (hasPrev && hasNext) d += edge(p[i - 1], p[i + 1]);
+        return d;
+    }
+
+    /** Cost change of inserting v so that it ends up at index {@code at}. */
+    private double insertionDelta(int r, int at, int v) {
+        int[] p = route[r];
+        boolean hasPrev = at > 0;
+        boolean hasNext = at < len[r];
+        double d = 0.0;
+        if (hasPrev) d += edge(p[at - 1], v);
+        if (hasNext) d += edge(v, p[at]);
+        if (hasPrev && hasNext) d -= edge(p[at - 1], p[at]);
+        return d;
+    }
+
+    private double replacementDelta(int r, int i, int w) {
+        int[] p = route[r];
+        int v = p[i];
+        double d = 0.0;
+        if (i > 0) d += edge(p[i - 1], w) - edge(p[i - 1], v);
+        if (i + 1 < len[r]) d += edge(w, p[i + 1]) - edge(v, p[i + 1]);
+        return d;
+    }
+
+    private void remove(int r, int i) {
+        int[] p = route[r];
+        System.arraycopy(p, i + 1, p, i, len[r] - i - 1);
+        len[r]--;
+        for (int t = i; t < len[r]; t++) pos[p[t]] = t;
+    }
+
+    private void insert(int r, int at, int v) {
+        int[] p = route[r];
+        System.arraycopy(p, at, p, at + 1, len[r] - at);
+        p[at] = v;
+        len[r]++;
+        routeOf[v] = r;
+        for (int t = at; t < len[r]; t++) pos[p[t]] = t;
+    }
+
+    private double edge(int from, int to) {
+        double c = cost.get(from, to);
+        return c < PathPrefix.UNREACHABLE ? c : PathPrefix.UNREACHABLE;
+    }
+
+    /** Symmetric closeness used for clustering. */
+    private double dist(int a, int b) {
+        return edge(a, b) + edge(b, a);
+    }
+}
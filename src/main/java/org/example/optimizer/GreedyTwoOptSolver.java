@@ -0,0 +1,56 @@
+package org.example.optimizer;
+
+import org.example.config.AppConfig;
+import org.example.routing.CostMatrix;
+
+/**
+ * Nearest-neighbor construction followed by local search: full 2-opt for small routes,
+ * neighbor-list 2-opt + Or-opt from {@code neighborSearchMinStops} stops on.
+ * Without a fixed start, the greedy path is built from every candidate start (see {@link StartSelection}).
+ */
+public class GreedyTwoOptSolver implements ProgressiveSolver {
+
+    private final int neighborSearchMinStops;
+    private final int neighbors;
+    private final int startCandidates;
+
+    public GreedyTwoOptSolver() {
+        this(AppConfig.DEFAULT_NEIGHBOR_SEARCH_MIN_STOPS, AppConfig.DEFAULT_NEIGHBORS, 0);
+    }
+
+    /**
+     * @param startCandidates how many peripheral stops to try as start when none is fixed; 0 = all
+     */
+    public GreedyTwoOptSolver(int neighborSearchMinStops, int neighbors, int startCandidates) {
+        this.neighborSearchMinStops = neighborSearchMinStops;
+        this.neighbors = neighbors;
+        this.startCandidates = startCandidates;
+    }
+
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx) {
+        return solve(cost, startIdx, Progress.NONE);
+    }
+
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx, Progress progress) {
+        int[] order = startIdx >= 0
+                ? PathConstruction.nearestNeighborPathFromStart(startIdx, cost)
+                : StartSelection.bestStartByGreedy(cost, startCandidates);
+        progress.improved(order);
+        return improve(order, cost, progress);
+    }
+
+    int[] improve(int[] order, CostMatrix cost) {
+        return improve(order, cost, Progress.NONE);
+    }
+
+    private int[] improve(int[] order, CostMatrix cost, Progress progress) {
+        if (order.length >= neighborSearchMinStops) {
+            if (order.length < 3) return order;
+            return NeighborLocalSearch.improvePath(order, cost, NeighborLists.build(cost, neighbors), null,
+                    Deadline.none(), null, progress);
+        }
+        return TwoOpt.improvePath(order, cost, null, progress);
+    }
+}
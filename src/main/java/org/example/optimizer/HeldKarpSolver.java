@@ -0,0 +1,111 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Exact open-path solver (Held–Karp dynamic programming) for small routes.
+ *
+ * {@code best[S][j]} is the cheapest path from the start through exactly the stops of bit set S,
+ * ending at j. Sets of size k depend only on sets of size k−1, so each size layer is filled in
+ * parallel. Table values are floats in one flat array indexed by {@code S·m + j}: O(2^m·m) memory,
+ * O(2^m·m²) time, where m is the number of stops besides a fixed start (all stops if the start is free).
+ */
+public class HeldKarpSolver implements RouteSolver {
+
+    /** 2^20·20 floats = 80 MB; beyond that the table does not pay off. */
+    public static final int MAX_STOPS = 20;
+
+    /** Below this many free nodes a layer is too small to split across threads. */
+    private static final int PARALLEL_MIN_NODES = 12;
+
+    /** True if a route of {@code stops} stops (start included) is small enough to solve exactly. */
+    public static boolean supports(int stops, int startIdx) {
+        return (startIdx >= 0 ? stops - 1 : stops) <= MAX_STOPS;
+    }
+
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx) {
+        int n = cost.size();
+        if (n == 0) throw new RuntimeException("Не удалось выбрать старт.");
+        if (n == 1) return new int[]{0};
+        if (!supports(n, startIdx)) {
+            throw new IllegalArgumentException("Слишком много точек для точного решения: " + n);
+        }
+
+        // the m free nodes, renumbered 0..m-1
+        int m = startIdx >= 0 ? n - 1 : n;
+        int[] node = new int[m];
+        for (int j = 0, k = 0; j < n; j++) if (j != startIdx) node[k++] = j;
+
+        double[] c = new double[m * m];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) c[i * m + j] = cost.get(node[i], node[j]);
+        }
+
+        int sets = 1 << m;
+        float[] best = new float[sets * m];
+        Arrays.fill(best, Float.POSITIVE_INFINITY);
+        for (int j = 0; j < m; j++) {
+            best[(1 << j) * m + j] = startIdx >= 0 ? (float) cost.get(startIdx, node[j]) : 0f;
+        }
+
+        for (int size = 2; size <= m; size++) {
+            final int k = size;
+            IntStream masks = IntStream.range(0, sets).filter(s -> Integer.bitCount(s) == k);
+            if (m >= PARALLEL_MIN_NODES) masks = masks.parallel();
+            masks.forEach(s -> fill(best, c, m, s));
+        }
+
+        int full = sets - 1;
+        int last = -1;
+        float total = Float.POSITIVE_INFINITY;
+        for (int j = 0; j < m; j++) {
+            if (best[full * m + j] < total) {
+                total = best[full * m + j];
+                last = j;
+            }
+        }
+        if (last < 0) throw new RuntimeException("Не удалось построить маршрут (разрыв в матрице).");
+
+        // walk back: the predecessor is the one whose entry reproduces the stored value
+        int[] order = new int[n];
+        int s = full;
+        for (int p = n - 1, j = last; p >= n - m; p--) {
+            order[p] = node[j];
+            int rest = s & ~(1 << j);
+            if (rest != 0) {
+                float target = best[s * m + j];
+                int prev = -1;
+                for (int i = 0; i < m && prev < 0; i++) {
+                    if ((rest & (1 << i)) != 0 && step(best, c, m, rest, i, j) == target) prev = i;
+                }
+                j = prev;
+            }
+            s = rest;
+        }
+        if (startIdx >= 0) order[0] = startIdx;
+        return order;
+    }
+
+    private static void fill(float[] best, double[] c, int m, int s) {
+        for (int j = 0; j < m; j++) {
+            if ((s & (1 << j)) == 0) continue;
+            int rest = s & ~(1 << j);
+            float b = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < m; i++) {
+                if ((rest & (1 << i)) == 0) continue;
+                float v = step(best, c, m, rest, i, j);
+                if (v < b) b = v;
+            }
+            best[s * m + j] = b;
+        }
+    }
+
+    /** Cost of reaching j right after the path over {@code rest} that ends at i. */
+    private static float step(float[] best, double[] c, int m, int rest, int i, int j) {
+        return (float) (best[rest * m + i] + c[i * m + j]);
+    }
+}
@@ -0,0 +1,326 @@
+package org.example.optimizer;
+
+import org.example.config.AppConfig;
+import org.example.routing.CostMatrix;
+
+/**
+ * Lin–Kernighan style variable-depth local search (2-opt move chains, LK "2h" variant).
+ *
+ * The path is closed into a cycle through a dummy node: the dummy is free to attach to any
+ * stop, or only cheaply to the fixed start. A chain starts by removing a tour edge (t1, t2),
+ * then repeatedly adds (t2, t3) for a candidate t3 and removes (t4, t3), keeping the tour
+ * closed by a segment reversal. The chain is rolled back to its best closing point.
+ *
+ * Tour and position arrays are indexed both ways; a reversal flips whichever side of the
+ * cycle is shorter, so each step costs at most n/2 swaps.
+ * Gains use the symmetrized cost; the resulting path is then polished with exact Or-opt moves.
+ */
+public class LinKernighanSolver implements ProgressiveSolver {
+
+    private static final double EPS = 1e-9;
+    /** Stands in for a missing connection so that gains stay finite. */
+    private static final double UNREACHABLE = 1e9;
+    /** Cost of tying the dummy node to a stop other than the fixed start. */
+    private static final double DUMMY_EDGE = 1e12;
+    /** Alternatives tried for the first step of a chain. */
+    private static final int FIRST_LEVEL_BREADTH = 5;
+
+    private final int neighbors;
+    private final int maxDepth;
+    private final int startCandidates;
+
+    public LinKernighanSolver() {
+        this(AppConfig.DEFAULT_NEIGHBORS, AppConfig.DEFAULT_LK_MAX_DEPTH, 0);
+    }
+
+    /**
+     * @param neighbors       candidate list size K
+     * @param maxDepth        max number of steps in one move chain
+     * @param startCandidates peripheral stops tried as start when none is fixed; 0 = all
+     */
+    public LinKernighanSolver(int neighbors, int maxDepth, int startCandidates) {
+        this.neighbors = neighbors;
+        this.maxDepth = Math.max(1, maxDepth);
+        this.startCandidates = startCandidates;
+    }
+
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx) {
+        return solve(cost, startIdx, Progress.NONE);
+    }
+
+    /** Reports the constructed path, the Lin–Kernighan result and the final polish (not single k-opt moves). */
+    @Override
+    public int[] solve(CostMatrix cost, int startIdx, Progress progress) {
+        int[] initial = startIdx >= 0
+                ? PathConstruction.nearestNeighborPathFromStart(startIdx, cost)
+                : StartSelection.bestStartByGreedy(cost, startCandidates);
+        progress.improved(initial);
+        int n = initial.length;
+        if (n < 5) return TwoOpt.improvePath(initial, cost, null, progress);
+
+        NeighborLists nbrs = NeighborLists.build(cost, neighbors);
+
+        Tour t = new Tour(cost, nbrs, startIdx, initial, maxDepth);
+        t.optimize();
+        int[] path = t.toPath();
+
+        if (path == null || PathConstruction.totalCost(path, cost) > PathConstruction.totalCost(initial, cost)) {
+            path = initial;
+        }
+        progress.improved(path);
+        return NeighborLocalSearch.improvePath(path, cost, nbrs, null, Deadline.none(), null, progress);
+    }
+
+    /** Cycle over the n stops plus one dummy node (index n). */
+    private static final class Tour {
+        private final CostMatrix cost;
+        private final NeighborLists nbrs;
+        private final int startIdx;
+        private final int maxDepth;
+        private final int n;
+        private final int m;
+        private final int dummy;
+
+        private final int[] tour;
+        private final int[] pos;
+        private boolean flipped; // logical succ is raw pred
+
+        // chain bookkeeping: step s reversed logical segment stepT2[s]..stepT4[s] and added (stepT2[s], stepT3[s])
+        private final int[] stepT2;
+        private final int[] stepT3;
+        private final int[] stepT4;
+
+        // don't-look bits
+        private final int[] queue;
+        private final boolean[] active;
+        private int head;
+        private int tail;
+        private int queued;
+
+        Tour(CostMatrix cost, NeighborLists nbrs, int startIdx, int[] initial, int maxDepth) {
+            this.cost = cost;
+            this.nbrs = nbrs;
+            this.startIdx = startIdx;
+            this.maxDepth = maxDepth;
+            this.n = initial.length;
+            this.m = n + 1;
+            this.dummy = n;
+
+            this.tour = new int[m];
+            this.pos = new int[m];
+            tour[0] = dummy;
+            System.arraycopy(initial, 0, tour, 1, n);
+            for (int i = 0; i < m; i++) pos[tour[i]] = i;
+
+            this.stepT2 = new int[maxDepth];
+            this.stepT3 = new int[maxDepth];
+            this.stepT4 = new int[maxDepth];
+            this.queue = new int[m];
+            this.active = new boolean[m];
+        }
+
+        void optimize() {
+            for (int v : tour) push(v);
+            while (queued > 0) {
+                int t1 = poll();
+                if (improveFrom(t1) || improveFrom(flip(t1))) push(t1);
+            }
+        }
+
+        /** Flips orientation so that the chain also starts from pred(t1); returns t1. */
+        private int flip(int t1) {
+            flipped = !flipped;
+            return t1;
+        }
+
+        private boolean improveFrom(int t1) {
+            int t2 = succ(t1);
+            double g0 = w(t1, t2);
+
+            // first step: try several alternatives, then continue greedily
+            int[] firstT3 = new int[FIRST_LEVEL_BREADTH];
+            double[] firstG = new double[FIRST_LEVEL_BREADTH];
+            int firstCount = 0;
+            int k = t2 == dummy ? 0 : nbrs.k();
+            for (int r = 0; r < k; r++) {
+                int t3 = nbrs.get(t2, r);
+                int t4 = pred(t3);
+                if (t3 == t1 || t4 == t2) continue;
+                double g1 = g0 - w(t2, t3);
+                if (g1 <= EPS) continue;
+                double g2 = g1 + w(t4, t3);
+
+                if (firstCount == FIRST_LEVEL_BREADTH && g2 <= firstG[FIRST_LEVEL_BREADTH - 1]) continue;
+                int p = firstCount < FIRST_LEVEL_BREADTH ? firstCount++ : FIRST_LEVEL_BREADTH - 1;
+                while (p > 0 && firstG[p - 1] < g2) {
+                    firstG[p] = firstG[p - 1];
+                    firstT3[p] = firstT3[p - 1];
+                    p--;
+                }
+                firstG[p] = g2;
+                firstT3[p] = t3;
+            }
+
+            for (int f = 0; f < firstCount; f++) {
+                if (chain(t1, t2, firstT3[f], firstG[f])) return true;
+            }
+            return false;
+        }
+
+        /** Runs a chain whose first step adds (t2, t3); keeps the best prefix if it gains. */
+        private boolean chain(int t1, int t2, int t3, double g) {
+            // a rolled-back chain leaves the same cycle, but possibly read the other way round
+            if (succ(t1) != t2) flipped = !flipped;
+
+            int depth = 0;
+            double bestGain = EPS;
+            int bestDepth = 0;
+
+            while (true) {
+                int t4 = pred(t3);
+                reverseLogical(t2, t4);
+                stepT2[depth] = t2;
+                stepT3[depth] = t3;
+                stepT4[depth] = t4;
+                depth++;
+
+                double closed = g - w(t4, t1);
+                if (closed > bestGain) {
+                    bestGain = closed;
+                    bestDepth = depth;
+                }
+                if (depth >= maxDepth) break;
+
+                // next step from t2 := t4, edge (t1, t4) is the one being "removed"
+                t2 = t4;
+                int bestT3 = -1;
+                double bestG = Double.NEGATIVE_INFINITY;
+                int k = t2 == dummy ? 0 : nbrs.k();
+                for (int r = 0; r < k; r++) {
+                    int c = nbrs.get(t2, r);
+                    int c4 = pred(c);
+                    if (c == t1 || c4 == t2 || isAdded(c4, c, depth)) continue;
+                    double g1 = g - w(t2, c);
+                    if (g1 <= EPS) continue;
+                    double g2 = g1 + w(c4, c);
+                    if (g2 > bestG) {
+                        bestG = g2;
+                        bestT3 = c;
+                    }
+                }
+                if (bestT3 < 0) break;
+                t3 = bestT3;
+                g = bestG;
+            }
+
+            for (int s = depth - 1; s >= bestDepth; s--) {
+                reverseLogical(stepT4[s], stepT2[s]);
+            }
+            if (bestDepth == 0) return false;
+
+            push(t1);
+            for (int s = 0; s < bestDepth; s++) {
+                push(stepT2[s]);
+                push(stepT3[s]);
+                push(stepT4[s]);
+            }
+            return true;
+        }
+
+        private boolean isAdded(int a, int b, int depth) {
+            for (int s = 0; s < depth; s++) {
+                if ((stepT2[s] == a && stepT3[s] == b) || (stepT2[s] == b && stepT3[s] == a)) return true;
+            }
+            return false;
+        }
+
+        // ---------- tour representation ----------
+
+        private int succ(int v) {
+            int p = pos[v];
+            return flipped ? tour[p == 0 ? m - 1 : p - 1] : tour[p + 1 == m ? 0 : p + 1];
+        }
+
+        private int pred(int v) {
+            int p = pos[v];
+            return flipped ? tour[p + 1 == m ? 0 : p + 1] : tour[p == 0 ? m - 1 : p - 1];
+        }
+
+        /** Reverses the logical path a → ... → b, flipping the shorter side of the cycle. */
+        private void reverseLogical(int a, int b) {
+            int i = flipped ? pos[b] : pos[a];
+            int j = flipped ? pos[a] : pos[b];
+            int len = Math.floorMod(j - i, m) + 1;
+
+            if (2 * len > m) {
+                // reversing the complement gives the same cycle read backwards
+                int ci = j + 1 == m ? 0 : j + 1;
+                int cj = i == 0 ? m - 1 : i - 1;
+                i = ci;
+                j = cj;
+                len = m - len;
+                flipped = !flipped;
+            }
+
+            for (int s = 0; s < len / 2; s++) {
+                int x = tour[i];
+                int y = tour[j];
+                tour[i] = y;
+                pos[y] = i;
+                tour[j] = x;
+                pos[x] = j;
+                i = i + 1 == m ? 0 : i + 1;
+                j = j == 0 ? m - 1 : j - 1;
+            }
+        }
+
+        private double w(int i, int j) {
+            if (i == dummy || j == dummy) {
+                int o = i == dummy ? j : i;
+                return (startIdx < 0 || o == startIdx) ? 0.0 : DUMMY_EDGE;
+            }
+            return 0.5 * (Math.min(cost.get(i, j), UNREACHABLE) + Math.min(cost.get(j, i), UNREACHABLE));
+        }
+
+        /** Cuts the cycle at the dummy node; null if the fixed start is not next to it. */
+        int[] toPath() {
+            int[] fwd = walk(false);
+            int[] bwd = walk(true);
+            if (startIdx >= 0) {
+                if (fwd[0] == startIdx) return fwd;
+                if (bwd[0] == startIdx) return bwd;
+                return null;
+            }
+            return PathConstruction.totalCost(fwd, cost) <= PathConstruction.totalCost(bwd, cost) ? fwd : bwd;
+        }
+
+        private int[] walk(boolean backwards) {
+            int[] path = new int[n];
+            int v = dummy;
+            for (int i = 0; i < n; i++) {
+                v = backwards ? pred(v) : succ(v);
+                path[i] = v;
+            }
+            return path;
+        }
+
+        // ---------- queue ----------
+
+        private void push(int v) {
+            if (active[v]) return;
+            active[v] = true;
+            queue[tail] = v;
+            tail = tail + 1 == m ? 0 : tail + 1;
+            queued++;
+        }
+
+        private int poll() {
+            int v = queue[head];
+            head = head + 1 == m ? 0 : head + 1;
+            queued--;
+            active[v] = false;
+            return v;
+        }
+    }
+}
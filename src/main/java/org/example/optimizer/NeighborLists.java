@@ -0,0 +1,55 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+import java.util.stream.IntStream;
+
+/**
+ * K nearest candidates of every node, by min(cost(i, j), cost(j, i)), nearest first.
+ * Stored flat: the r-th neighbor of i is at [i * k + r].
+ */
+final class NeighborLists {
+    private final int k;
+    private final int[] nbr;
+
+    private NeighborLists(int k, int[] nbr) {
+        this.k = k;
+        this.nbr = nbr;
+    }
+
+    static NeighborLists build(CostMatrix cost, int k) {
+        int n = cost.size();
+        int kk = Math.max(0, Math.min(k, n - 1));
+        int[] nbr = new int[n * kk];
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] idx = new int[kk];
+            double[] best = new double[kk];
+            int size = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) continue;
+                double c = Math.min(cost.get(i, j), cost.get(j, i));
+                if (size == kk && c >= best[kk - 1]) continue;
+
+                // insertion into the sorted prefix
+                int p = size < kk ? size++ : kk - 1;
+                while (p > 0 && best[p - 1] > c) {
+                    best[p] = best[p - 1];
+                    idx[p] = idx[p - 1];
+                    p--;
+                }
+                best[p] = c;
+                idx[p] = j;
+            }
+            System.arraycopy(idx, 0, nbr, i * kk, kk);
+        });
+
+        return new NeighborLists(kk, nbr);
+    }
+
+    int k() { return k; }
+
+    int get(int node, int r) {
+        return nbr[node * k + r];
+    }
+}
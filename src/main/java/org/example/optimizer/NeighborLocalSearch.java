@@ -0,0 +1,326 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/**
+ * Local search over a path (first index fixed, end free) driven by K-nearest candidate lists
+ * and don't-look bits: only nodes whose surroundings changed recently are re-examined.
+ * Moves: 2-opt (segment reversal) and Or-opt (move a segment of 1..3 stops elsewhere,
+ * optionally reversed). Both are priced exactly on asymmetric matrices via {@link PathPrefix}.
+ *
+ * Each node is examined against K candidates, so a pass costs O(n·K) instead of O(n²).
+ * With time windows a move must also lower the lateness, or keep it: the check joins prefix and
+ * suffix summaries ({@link WindowedPath}) and only re-walks the stops the move rearranges, which
+ * happens just for moves that already pass the cost test (unless the path is still late).
+ */
+public final class NeighborLocalSearch {
+
+    private static final double EPS = 1e-9;
+    private static final int MAX_SEGMENT = 3;
+    /** Safety cap against float round-off letting a pair of moves undo each other forever. */
+    private static final int MAX_MOVES_PER_NODE = 100;
+
+    private final NeighborLists nbrs;
+    private final int n;
+    private final int[] order;
+    private final int[] pos;
+    private final PathPrefix prefix;
+    private final WindowedPath wp; // null without time windows
+    private final TimeWindows.Seg seg = new TimeWindows.Seg();
+    private final TimeWindows.Seg part = new TimeWindows.Seg();
+    private final Progress progress;
+
+    // don't-look bits as a FIFO queue of "active" nodes
+    private final int[] queue;
+    private final boolean[] active;
+    private int head;
+    private int tail;
+    private int queued;
+
+    private NeighborLocalSearch(int[] order, CostMatrix cost, NeighborLists nbrs, TimeWindows windows,
+                                Progress progress) {
+        this.nbrs = nbrs;
+        this.progress = progress;
+        this.n = order.length;
+        this.order = order;
+        this.pos = new int[n];
+        for (int i = 0; i < n; i++) pos[order[i]] = i;
+        this.prefix = new PathPrefix(order, cost);
+        this.wp = windows == null ? null : new WindowedPath(order, cost, windows);
+        this.queue = new int[n];
+        this.active = new boolean[n];
+    }
+
+    /**
+     * Improves {@code order} in place and returns it; never returns a costlier path than the input.
+     * @param neighbors candidate list size K (8–12 is usually enough)
+     */
+    public static int[] improvePath(int[] order, CostMatrix cost, int neighbors) {
+        return improvePath(order, cost, neighbors, null);
+    }
+
+    /**
+     * Same, honoring time windows: never returns a later (more time warp) path, nor a costlier one
+     * with the same lateness.
+     * @param windows null = no windows
+     */
+    public static int[] improvePath(int[] order, CostMatrix cost, int neighbors, TimeWindows windows) {
+        if (order.length < 3) return order;
+        return improvePath(order, cost, NeighborLists.build(cost, neighbors), null, Deadline.none(), windows);
+    }
+
+    static int[] improvePath(int[] order, CostMatrix cost, NeighborLists nbrs) {
+        return improvePath(order, cost, nbrs, null, Deadline.none());
+    }
+
+    /**
+     * @param seeds    nodes to examine first, others only once a move touches them; null = all
+     * @param deadline the search stops (keeping what it has) once this passes
+     */
+    static int[] improvePath(int[] order, CostMatrix cost, NeighborLists nbrs, int[] seeds, Deadline deadline) {
+        return improvePath(order, cost, nbrs, seeds, deadline, null);
+    }
+
+    static int[] improvePath(int[] order, CostMatrix cost, NeighborLists nbrs, int[] seeds, Deadline deadline,
+                             TimeWindows windows) {
+        return improvePath(order, cost, nbrs, seeds, deadline, windows, Progress.NONE);
+    }
+
+    /** @param progress gets the path every few hundred moves while it keeps changing */
+    static int[] improvePath(int[] order, CostMatrix cost, NeighborLists nbrs, int[] seeds, Deadline deadline,
+                             TimeWindows windows, Progress progress) {
+        if (order.length < 3) return order;
+
+        int[] initial = order.clone();
+        new NeighborLocalSearch(order, cost, nbrs, windows, progress).run(seeds == null ? order.clone() : seeds, deadline);
+
+        // moves are exact, but unreachable legs are priced as a finite penalty: keep the better path
+        if (worse(order, initial, cost, windows)) {
+            System.arraycopy(initial, 0, order, 0, order.length);
+        }
+        return order;
+    }
+
+    private static boolean worse(int[] a, int[] b, CostMatrix cost, TimeWindows windows) {
+        if (windows != null) {
+            double lateA = windows.lateness(a, cost);
+            double lateB = windows.lateness(b, cost);
+            if (Math.abs(lateA - lateB) > TimeWindows.EPS) return lateA > lateB;
+        }
+        return pathCost(a, cost) > pathCost(b, cost);
+    }
+
+    static double pathCost(int[] order, CostMatrix cost) {
+        double sum = 0.0;
+        for (int i = 0; i < order.length - 1; i++) sum += cost.get(order[i], order[i + 1]);
+        return sum;
+    }
+
+    private void run(int[] seeds, Deadline deadline) {
+        for (int v : seeds) push(v);
+        long movesLeft = (long) MAX_MOVES_PER_NODE * n;
+        int polls = 0;
+        boolean moved = false;
+        while (queued > 0 && movesLeft > 0) {
+            if ((++polls & 255) == 0) {
+                if (deadline.passed()) break;
+                if (moved) progress.improved(order);
+                moved = false;
+            }
+            int a = poll();
+            if (improveTwoOpt(a) || improveOrOpt(a)) {
+                push(a);
+                movesLeft--;
+                moved = true;
+            }
+        }
+    }
+
+    // ---------- 2-opt ----------
+
+    private boolean improveTwoOpt(int a) {
+        int p = pos[a];
+        for (int r = 0; r < nbrs.k(); r++) {
+            int q = pos[nbrs.get(a, r)];
+            int lo = Math.min(p, q);
+            int hi = Math.max(p, q);
+
+            // a and its candidate become adjacent either after lo or before hi
+            if (tryReverse(lo + 1, hi)) return true;
+            if (tryReverse(lo, hi - 1)) return true;
+        }
+        return false;
+    }
+
+    private boolean tryReverse(int i, int k) {
+        if (i < 1 || i >= k) return false;
+
+        double delta = prefix.reversalDelta(i, k);
+        if (wp == null) {
+            if (!(delta < -EPS)) return false;
+        } else {
+            if (!wp.mayAccept(delta)) return false;
+            wp.reversed(seg, i, k);
+            if (!wp.accepts(i - 1, seg, k + 1, delta)) return false;
+        }
+
+        int a = order[i - 1];
+        int b = order[i];
+        int c = order[k];
+        reverse(i, k);
+        prefix.invalidateFrom(i);
+        if (wp != null) wp.invalidate(i, k);
+        progress.moved(order, delta);
+        push(a);
+        push(b);
+        push(c);
+        if (k + 1 < n) push(order[k + 1]);
+        return true;
+    }
+
+    private void reverse(int i, int k) {
+        while (i < k) {
+            int tmp = order[i];
+            order[i] = order[k];
+            order[k] = tmp;
+            pos[order[i]] = i;
+            pos[order[k]] = k;
+            i++;
+            k--;
+        }
+        if (i == k) pos[order[i]] = i;
+    }
+
+    // ---------- Or-opt ----------
+
+    private boolean improveOrOpt(int a) {
+        int s = pos[a];
+        if (s < 1) return false; // the start stays in place
+
+        for (int len = 1; len <= MAX_SEGMENT; len++) {
+            int e = s + len - 1;
+            if (e >= n) break;
+            if (tryMoveSegment(s, e)) return true;
+        }
+        // also segments that end at a
+        for (int len = 2; len <= MAX_SEGMENT; len++) {
+            int st = s - len + 1;
+            if (st < 1) break;
+            if (tryMoveSegment(st, s)) return true;
+        }
+        return false;
+    }
+
+    private boolean tryMoveSegment(int s, int e) {
+        int first = order[s];
+        int last = order[e];
+        int prev = order[s - 1];
+        boolean hasNext = e + 1 < n;
+        int next = hasNext ? order[e + 1] : -1;
+
+        double removeGain = prefix.edge(prev, first)
+                + (hasNext ? prefix.edge(last, next) - prefix.edge(prev, next) : 0.0);
+        double flip = prefix.flipDelta(s, e);
+
+        for (int end = 0; end < 2; end++) {
+            int anchor = end == 0 ? first : last;
+            for (int r = 0; r < nbrs.k(); r++) {
+                int cPos = pos[nbrs.get(anchor, r)];
+                // insert after the candidate or right before it
+                for (int xPos = cPos; xPos >= cPos - 1; xPos--) {
+                    if (xPos < 0 || (xPos >= s - 1 && xPos <= e)) continue;
+
+                    int x = order[xPos];
+                    boolean hasY = xPos + 1 < n;
+                    int y = hasY ? order[xPos + 1] : -1;
+                    double base = hasY ? -prefix.edge(x, y) : 0.0;
+
+                    double fwd = base + prefix.edge(x, first) + (hasY ? prefix.edge(last, y) : 0.0);
+                    if (accepts(s, e, xPos, false, fwd - removeGain)) {
+                        moveSegment(s, e, xPos, false);
+                        progress.moved(order, fwd - removeGain);
+                        touch(prev, next, x, y, first, last);
+                        return true;
+                    }
+
+                    double rev = base + prefix.edge(x, last) + (hasY ? prefix.edge(first, y) : 0.0) + flip;
+                    if (accepts(s, e, xPos, true, rev - removeGain)) {
+                        moveSegment(s, e, xPos, true);
+                        progress.moved(order, rev - removeGain);
+                        touch(prev, next, x, y, first, last);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Whether moving order[s..e] after xPos (cost change {@code delta}) is an improvement. */
+    private boolean accepts(int s, int e, int xPos, boolean reversed, double delta) {
+        if (wp == null) return delta < -EPS;
+        if (!wp.mayAccept(delta)) return false;
+
+        if (reversed) wp.reversed(seg, s, e);
+        else wp.forward(seg, s, e);
+
+        if (xPos < s) {
+            // [0..xPos] seg [xPos+1..s-1] [e+1..]
+            wp.forward(part, xPos + 1, s - 1);
+            wp.concat(seg, seg, part);
+            return wp.accepts(xPos, seg, e + 1, delta);
+        }
+        // [0..s-1] [e+1..xPos] seg [xPos+1..]
+        wp.forward(part, e + 1, xPos);
+        wp.concat(part, part, seg);
+        return wp.accepts(s - 1, part, xPos + 1, delta);
+    }
+
+    /** Moves order[s..e] to right after position xPos (xPos outside [s-1, e]). */
+    private void moveSegment(int s, int e, int xPos, boolean reversed) {
+        int len = e - s + 1;
+        int[] seg = new int[len];
+        for (int t = 0; t < len; t++) seg[t] = order[reversed ? e - t : s + t];
+
+        int from;
+        int to;
+        if (xPos < s) {
+            // shift (xPos, s) right by len, segment goes to xPos+1
+            System.arraycopy(order, xPos + 1, order, xPos + 1 + len, s - xPos - 1);
+            System.arraycopy(seg, 0, order, xPos + 1, len);
+            from = xPos + 1;
+            to = e;
+        } else {
+            // shift (e, xPos] left by len, segment ends at xPos
+            System.arraycopy(order, e + 1, order, s, xPos - e);
+            System.arraycopy(seg, 0, order, xPos - len + 1, len);
+            from = s;
+            to = xPos;
+        }
+        for (int t = from; t <= to; t++) pos[order[t]] = t;
+        prefix.invalidateFrom(from);
+        if (wp != null) wp.invalidate(from, to);
+    }
+
+    private void touch(int... nodes) {
+        for (int v : nodes) if (v >= 0) push(v);
+    }
+
+    // ---------- queue ----------
+
+    private void push(int v) {
+        if (active[v]) return;
+        active[v] = true;
+        queue[tail] = v;
+        tail = (tail + 1) % n;
+        queued++;
+    }
+
+    private int poll() {
+        int v = queue[head];
+        head = (head + 1) % n;
+        queued--;
+        active[v] = false;
+        return v;
+    }
+}
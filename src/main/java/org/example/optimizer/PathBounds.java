@@ -0,0 +1,69 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+import java.util.Arrays;
+
+/** Lower bounds on the cost of an open path through all stops, for gap estimates. */
+final class PathBounds {
+
+    private PathBounds() {}
+
+    /**
+     * Max of two cheap bounds:
+     * <ul>
+     *   <li>a Hamiltonian path is a spanning tree, so it costs at least the MST over min(c(i,j), c(j,i));</li>
+     *   <li>every stop except the first is entered once, so at least the sum of cheapest in-edges
+     *       (minus the largest one when the start is free).</li>
+     * </ul>
+     * @return the bound, or 0 if the matrix has gaps that make it meaningless
+     */
+    static double lowerBound(CostMatrix cost, int startIdx) {
+        int n = cost.size();
+        if (n < 2) return 0.0;
+
+        double[] minIn = new double[n];
+        Arrays.fill(minIn, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) minIn[j] = Math.min(minIn[j], cost.get(i, j));
+            }
+        }
+        double inBound = 0.0;
+        double maxIn = 0.0;
+        for (int j = 0; j < n; j++) {
+            if (j == startIdx) continue;
+            inBound += minIn[j];
+            maxIn = Math.max(maxIn, minIn[j]);
+        }
+        if (startIdx < 0) inBound -= maxIn;
+
+        double bound = Math.max(inBound, mst(cost));
+        return Double.isInfinite(bound) || Double.isNaN(bound) ? 0.0 : bound;
+    }
+
+    /** Prim's algorithm, O(n²). */
+    private static double mst(CostMatrix cost) {
+        int n = cost.size();
+        boolean[] in = new boolean[n];
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[0] = 0.0;
+
+        double total = 0.0;
+        for (int step = 0; step < n; step++) {
+            int v = -1;
+            for (int i = 0; i < n; i++) {
+                if (!in[i] && (v < 0 || dist[i] < dist[v])) v = i;
+            }
+            in[v] = true;
+            total += dist[v];
+            for (int j = 0; j < n; j++) {
+                if (in[j]) continue;
+                double c = Math.min(cost.get(v, j), cost.get(j, v));
+                if (c < dist[j]) dist[j] = c;
+            }
+        }
+        return total;
+    }
+}
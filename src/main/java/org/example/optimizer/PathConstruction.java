@@ -0,0 +1,48 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/** Greedy construction of an initial path and path cost helpers shared by the solvers. */
+final class PathConstruction {
+
+    private PathConstruction() {}
+
+    static int[] nearestNeighborPathFromStart(int startIdx, CostMatrix cost) {
+        int n = cost.size();
+        boolean[] used = new boolean[n];
+        int[] order = new int[n];
+
+        order[0] = startIdx;
+        used[startIdx] = true;
+
+        for (int pos = 1; pos < n; pos++) {
+            int prev = order[pos - 1];
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+
+            for (int j = 0; j < n; j++) {
+                if (used[j]) continue;
+                double c = cost.get(prev, j);
+                if (c < bestCost) {
+                    bestCost = c;
+                    best = j;
+                }
+            }
+
+            if (best == -1) throw new RuntimeException("Не удалось построить маршрут (разрыв в матрице).");
+            order[pos] = best;
+            used[best] = true;
+        }
+        return order;
+    }
+
+    static double totalCost(int[] order, CostMatrix cost) {
+        double sum = 0.0;
+        for (int i = 0; i < order.length - 1; i++) {
+            double c = cost.get(order[i], order[i + 1]);
+            if (Double.isInfinite(c)) return Double.POSITIVE_INFINITY;
+            sum += c;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/**
+ * Prefix sums of the forward and reverse edge costs along a path, so the exact cost of
+ * reversing {@code order[i..k]} on an asymmetric matrix is known in O(1): besides the two
+ * boundary edges every inner edge flips direction, which costs {@code rev(i,k) - fwd(i,k)}.
+ *
+ * The sums are rebuilt lazily: a move only marks the path as changed from some position on,
+ * and the prefix is extended again up to whatever position the next query needs.
+ */
+final class PathPrefix {
+
+    /** Unreachable legs (+∞) count as this, otherwise the differences of the sums turn into NaN. */
+    static final double UNREACHABLE = 1e9;
+
+    private final int[] order;
+    private final CostMatrix cost;
+    private final double[] fwd;
+    private final double[] rev;
+    private int validTo;
+
+    PathPrefix(int[] order, CostMatrix cost) {
+        this.order = order;
+        this.cost = cost;
+        this.fwd = new double[order.length];
+        this.rev = new double[order.length];
+        this.validTo = 0;
+    }
+
+    /** The path changed at positions ≥ {@code from}. */
+    void invalidateFrom(int from) {
+        validTo = Math.min(validTo, Math.max(0, from - 1));
+    }
+
+    /** Cost change of reversing order[i..k] (1 ≤ i < k); k may be the last position. */
+    double reversalDelta(int i, int k) {
+        int a = order[i - 1];
+        int b = order[i];
+        int c = order[k];
+        double delta = edge(a, c) - edge(a, b);
+        if (k + 1 < order.length) {
+            int d = order[k + 1];
+            delta += edge(b, d) - edge(c, d);
+        }
+        return delta + flipDelta(i, k);
+    }
+
+    /** Cost change of walking order[i..k] backwards, inner edges only. */
+    double flipDelta(int i, int k) {
+        ensure(k);
+        return (rev[k] - rev[i]) - (fwd[k] - fwd[i]);
+    }
+
+    double edge(int from, int to) {
+        double c = cost.get(from, to);
+        return c < UNREACHABLE ? c : UNREACHABLE;
+    }
+
+    private void ensure(int k) {
+        while (validTo < k) {
+            int t = ++validTo;
+            fwd[t] = fwd[t - 1] + edge(order[t - 1], order[t]);
+            rev[t] = rev[t - 1] + edge(order[t], order[t - 1]);
+        }
+    }
+}
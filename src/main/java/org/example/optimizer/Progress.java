@@ -0,0 +1,19 @@
+package org.example.optimizer;
+
+/**
+ * Receives intermediate paths while a solver works (construction result, then improvements).
+ * Called between moves, so the array is a complete path; it is the solver's working array and
+ * must be copied, not kept or changed. Calls can be frequent: implementations throttle.
+ */
+interface Progress {
+
+    Progress NONE = order -> {};
+
+    void improved(int[] order);
+
+    /**
+     * Called by the local searches after each move they take, with the cost change they priced
+     * it at; {@code order} is the path after the move.
+     */
+    default void moved(int[] order, double delta) {}
+}
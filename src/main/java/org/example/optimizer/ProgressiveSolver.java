@@ -0,0 +1,10 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/** A {@link RouteSolver} that can report its intermediate paths. */
+interface ProgressiveSolver extends RouteSolver {
+
+    /** {@link RouteSolver#solve(CostMatrix, int)}, reporting the constructed path and then improvements. */
+    int[] solve(CostMatrix cost, int startIdx, Progress progress);
+}
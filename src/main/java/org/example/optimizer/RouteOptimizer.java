@@ -1,19 +1,92 @@
 package org.example.optimizer;
 
+import org.example.config.AppConfig;
+import org.example.model.DeliveryStop;
 import org.example.model.Location;
 import org.example.model.RouteResult;
+import org.example.model.SolveStats;
+import org.example.routing.ApproximateRoutingProvider;
+import org.example.routing.CostMatrix;
+import org.example.routing.GeocodeResult;
 import org.example.routing.MatrixResult;
+import org.example.routing.Futures;
 import org.example.routing.RoutingProvider;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class RouteOptimizer {
 
+    /** Intermediate routes are reported at most this often (about 15 frames per second). */
+    private static final long PROGRESS_INTERVAL_NANOS = 66_000_000L;
+
     private final RoutingProvider routing;
+    private final RouteSolver solver;
+    private final int exactMaxStops;
+    private final RoutingProvider approximate; // null = no preview / offline fallback
+    private final boolean offlineFallback;
 
     public RouteOptimizer(RoutingProvider routing) {
+        this(routing, new GreedyTwoOptSolver());
+    }
+
+    public RouteOptimizer(RoutingProvider routing, AppConfig cfg) {
+        this(routing, solverFor(cfg), cfg.exactMaxStops(),
+                cfg.approxPreview() || cfg.approxFallback() ? new ApproximateRoutingProvider(routing, cfg) : null,
+                cfg.approxFallback());
+    }
+
+    /** Small routes still go to {@link HeldKarpSolver}, as with the default config. */
+    public RouteOptimizer(RoutingProvider routing, RouteSolver solver) {
+        this(routing, solver, AppConfig.DEFAULT_EXACT_MAX_STOPS);
+    }
+
+    /**
+     * @param exactMaxStops routes of up to this many stops (start included) go to {@link HeldKarpSolver}
+     *                      instead of {@code solver}; 0 = always use {@code solver}
+     */
+    public RouteOptimizer(RoutingProvider routing, RouteSolver solver, int exactMaxStops) {
+        this(routing, solver, exactMaxStops, null, false);
+    }
+
+    /**
+     * @param approximate     instant matrix for previews (see {@link #optimizeStops(String, List, Consumer)}),
+     *                        e.g. {@link ApproximateRoutingProvider}; null = none
+     * @param offlineFallback when the real matrix fails with a network error, return a route on
+     *                        {@code approximate} (marked {@link RouteResult#isApproximate()}) instead
+     */
+    public RouteOptimizer(RoutingProvider routing, RouteSolver solver, int exactMaxStops,
+                          RoutingProvider approximate, boolean offlineFallback) {
         this.routing = routing;
+        this.solver = solver;
+        this.exactMaxStops = exactMaxStops;
+        this.approximate = approximate;
+        this.offlineFallback = offlineFallback && approximate != null;
+    }
+
+    /** Solver named by optimizer.solver: "greedy-2opt" (default), "lin-kernighan" or "anytime". */
+    static RouteSolver solverFor(AppConfig cfg) {
+        switch (cfg.solverName()) {
+            case "greedy-2opt":
+                return new GreedyTwoOptSolver(cfg.neighborSearchMinStops(), cfg.neighborSearchNeighbors(),
+                        cfg.startCandidates());
+            case "lin-kernighan":
+                return new LinKernighanSolver(cfg.neighborSearchNeighbors(), cfg.lkMaxDepth(), cfg.startCandidates());
+            case "anytime":
+                return new AnytimeSolver(cfg.neighborSearchNeighbors(), cfg.startCandidates(),
+                        cfg.anytimeBudget(), cfg.anytimeTargetGap());
+            default:
+                throw new IllegalStateException("Неизвестный optimizer.solver: " + cfg.solverName());
+        }
     }
 
     /**
@@ -21,34 +94,317 @@ public class RouteOptimizer {
      * @param deliveryAddresses list of addresses (each must be non-blank)
      */
     public RouteResult optimize(String startAddress, List<String> deliveryAddresses) throws Exception {
+        // 3) Solve order (path). If hasStart: fix index 0 as start, otherwise the solver picks one.
+        //    An anytime solver gets its default budget for the solve only; the network is not timed.
+        return solveUntimed(prepare(startAddress, deliveryAddresses), null);
+    }
+
+    /**
+     * Non-blocking {@link #optimize(String, List)}: geocoding and the matrix run as chained async
+     * provider calls, so waiting on the network holds no thread, and only the solve step takes one
+     * (from {@code solveExecutor}). Many routes can be in flight at once this way, with their
+     * network phases overlapping each other and other routes' solves.
+     */
+    public CompletableFuture<RouteResult> optimizeAsync(String startAddress, List<String> deliveryAddresses,
+                                                        Executor solveExecutor) {
+        return prepareAsync(startAddress, deliveryAddresses)
+                .thenApplyAsync(p -> solveUntimed(p, null), solveExecutor);
+    }
+
+    /**
+     * The configured solver on the default budget, or the exact one for small routes.
+     * @param listener gets intermediate routes (see {@link #throttled}); may be null
+     */
+    private RouteResult solveUntimed(Problem p, Consumer<RouteResult> listener) {
+        Progress progress = listener == null ? Progress.NONE : throttled(p, listener);
+        CostMatrix cost = p.matrix.durationsSeconds;
+        if (solver instanceof AnytimeSolver && !isExact(p.locs.size(), p.startIdx)) {
+            AnytimeSolver a = (AnytimeSolver) solver;
+            AnytimeSolver.Outcome o = a.solve(cost, p.startIdx,
+                    Deadline.after(a.defaultBudget()), a.defaultTargetGap(), progress);
+            return buildResult(p, o.order(), o.stats());
+        }
+        RouteSolver s = solverFor(p.locs.size(), p.startIdx);
+        int[] order = s instanceof ProgressiveSolver
+                ? ((ProgressiveSolver) s).solve(cost, p.startIdx, progress)
+                : s.solve(cost, p.startIdx);
+        return buildResult(p, order, null);
+    }
+
+    /**
+     * Turns solver progress into routes for {@code listener}: the first path (straight after
+     * construction) at once, then at most one per {@link #PROGRESS_INTERVAL_NANOS}.
+     */
+    private static Progress throttled(Problem p, Consumer<RouteResult> listener) {
+        long[] last = {System.nanoTime() - PROGRESS_INTERVAL_NANOS};
+        return order -> {
+            long now = System.nanoTime();
+            if (now - last[0] < PROGRESS_INTERVAL_NANOS) return;
+            last[0] = now;
+            try {
+                listener.accept(buildResult(p, order.clone(), null));
+            } catch (RuntimeException e) {
+                // an intermediate path may still use a leg without a route: skip this frame
+            }
+        };
+    }
+
+    /**
+     * Anytime variant: returns the best route found within {@code budget} (measured from the call,
+     * so geocoding and the matrix count too), with iteration statistics attached.
+     *
+     * @param targetGap stop early once the route is provably within this relative gap of optimal
+     *                  (e.g. 0.05); 0 means use the whole budget
+     * @throws RuntimeException if geocoding and the matrix take the whole budget
+     */
+    public RouteResult optimize(String startAddress, List<String> deliveryAddresses,
+                                Duration budget, double targetGap) throws Exception {
+        long t0 = System.nanoTime();
+        Deadline deadline = Deadline.after(budget);
+        Problem p;
+        try {
+            p = Futures.await(prepareAsync(startAddress, deliveryAddresses)
+                    .orTimeout(deadline.remainingNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Бюджет " + budget.toMillis()
+                    + " мс исчерпан: геокодирование и матрица не успели ответить");
+        }
+
+        if (isExact(p.locs.size(), p.startIdx)) {
+            CostMatrix cost = p.matrix.durationsSeconds;
+            int[] order = new HeldKarpSolver().solve(cost, p.startIdx);
+            double total = PathConstruction.totalCost(order, cost);
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            return buildResult(p, order, new SolveStats(1, 0, 0, ms, total, total, total, false));
+        }
+
+        AnytimeSolver a = solver instanceof AnytimeSolver ? (AnytimeSolver) solver : new AnytimeSolver();
+        AnytimeSolver.Outcome o = a.solve(p.matrix.durationsSeconds, p.startIdx, deadline, targetGap);
+
+        return buildResult(p, o.order(), o.stats());
+    }
+
+    /**
+     * Variant for stops with time windows and/or service times. Without any of them it is the
+     * same as {@link #optimize(String, List)}.
+     *
+     * @throws RuntimeException listing the stops whose windows cannot be met
+     */
+    public RouteResult optimizeStops(String startAddress, List<DeliveryStop> stops) throws Exception {
+        return optimizeStops(startAddress, stops, null);
+    }
+
+    /**
+     * Like {@link #optimizeStops(String, List)}, streaming intermediate routes to {@code progress}:
+     * <ul>
+     *   <li>while the real matrix is being fetched, a nearest-neighbour route on the approximate
+     *       one (milliseconds even for hundreds of stops, windows ignored;
+     *       {@link RouteResult#isApproximate()});</li>
+     *   <li>on the real matrix, the constructed route and then each improvement the solver finds,
+     *       at most about 15 per second (routes without windows; windowed ones report the final only).</li>
+     * </ul>
+     * With the offline fallback on, a network failure of the matrix gives the approximate route
+     * as the result instead of an error (see {@link #problemAsync}).
+     *
+     * @param progress called on this thread, before the final result is returned; may be null
+     */
+    public RouteResult optimizeStops(String startAddress, List<DeliveryStop> stops,
+                                     Consumer<RouteResult> progress) throws Exception {
+        List<String> addresses = new ArrayList<>(stops.size());
+        for (DeliveryStop s : stops) addresses.add(s.address());
+
+        Located g = Futures.await(locateAsync(startAddress, addresses));
+        CompletableFuture<Problem> real = problemAsync(g);
+
+        if (progress != null && approximate != null && !real.isDone()) {
+            // construction only: the preview must not hold back the real solve
+            Problem draft = approximateProblem(g);
+            int[] order = PathConstruction.nearestNeighborPathFromStart(Math.max(0, g.startIdx),
+                    draft.matrix.durationsSeconds);
+            if (!real.isDone()) progress.accept(buildResult(draft, order, null));
+        }
+
+        Problem p = Futures.await(real);
+        return solveStops(p, stops, true, p.approximate ? null : progress);
+    }
+
+    /**
+     * Non-blocking {@link #optimizeStops(String, List)} without progress: like
+     * {@link #optimizeAsync}, only the solve step takes a thread, from {@code solveExecutor}.
+     */
+    public CompletableFuture<RouteResult> optimizeStopsAsync(String startAddress, List<DeliveryStop> stops,
+                                                             Executor solveExecutor) {
+        List<String> addresses = new ArrayList<>(stops.size());
+        for (DeliveryStop s : stops) addresses.add(s.address());
+        return prepareAsync(startAddress, addresses)
+                .thenApplyAsync(p -> solveStops(p, stops, true, null), solveExecutor);
+    }
+
+    private Problem approximateProblem(Located g) throws Exception {
+        return new Problem(g.locs, approximate.buildMatrix(g.locs), g.startIdx, true);
+    }
+
+    /**
+     * @param strict   throw if a window is missed (a preview just shows the best it found)
+     * @param listener intermediate routes, for routes without windows; may be null
+     */
+    private RouteResult solveStops(Problem p, List<DeliveryStop> stops, boolean strict, Consumer<RouteResult> listener) {
+        boolean timed = false;
+        for (DeliveryStop s : stops) timed |= s.hasWindow() || s.serviceSeconds() > 0;
+        if (!timed) return solveUntimed(p, listener);
+
+        int offset = p.startIdx >= 0 ? 1 : 0;
+        int n = p.locs.size();
+        double[] earliest = new double[n];
+        double[] latest = new double[n];
+        double[] service = new double[n];
+        for (int i = 0; i < stops.size(); i++) {
+            DeliveryStop s = stops.get(i);
+            earliest[offset + i] = s.windowStartSeconds();
+            latest[offset + i] = s.windowEndSeconds();
+            service[offset + i] = s.serviceSeconds();
+        }
+        // the start itself: leave at time 0
+        if (offset == 1) latest[0] = 0.0;
+        TimeWindows windows = new TimeWindows(earliest, latest, service);
+
+        // the exact solver ignores windows, so always go through the windowed search
+        CostMatrix cost = p.matrix.durationsSeconds;
+        int[] order = solver.solve(cost, p.startIdx, windows);
+
+        double[] starts = windows.serviceStarts(order, cost);
+        List<String> late = new ArrayList<>();
+        for (int t = 0; t < order.length; t++) {
+            if (starts[t] > latest[order[t]] + TimeWindows.EPS) {
+                late.add(String.format(Locale.ROOT, "%s — опоздание %.0f мин",
+                        p.locs.get(order[t]).address(), (starts[t] - latest[order[t]]) / 60.0));
+            }
+        }
+        if (strict && !late.isEmpty()) {
+            throw new RuntimeException("Не удалось уложиться во временные окна (" + late.size() + "):\n"
+                    + String.join("\n", late));
+        }
+        return buildResult(p, order, null, starts);
+    }
+
+    /**
+     * Multi-courier variant: splits the deliveries between {@code fleet.vehicles()} couriers, all
+     * leaving from the start address (if given), and orders every route.
+     *
+     * @return one route per courier that got stops
+     */
+    public List<RouteResult> optimizeFleet(String startAddress, List<String> deliveryAddresses,
+                                           FleetOptions fleet) throws Exception {
+        return planFleet(prepare(startAddress, deliveryAddresses), fleet);
+    }
+
+    /** Non-blocking {@link #optimizeFleet}: only the planning step takes a thread, from {@code solveExecutor}. */
+    public CompletableFuture<List<RouteResult>> optimizeFleetAsync(String startAddress, List<String> deliveryAddresses,
+                                                                   FleetOptions fleet, Executor solveExecutor) {
+        return prepareAsync(startAddress, deliveryAddresses)
+                .thenApplyAsync(p -> {
+                    try {
+                        return planFleet(p, fleet);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, solveExecutor);
+    }
+
+    private List<RouteResult> planFleet(Problem p, FleetOptions fleet) throws Exception {
+        List<int[]> orders = FleetPlanner.plan(p.matrix.durationsSeconds, p.startIdx, fleet,
+                (cost, start) -> solverFor(cost.size(), start).solve(cost, start));
+
+        List<RouteResult> results = new ArrayList<>(orders.size());
+        for (int[] order : orders) results.add(buildResult(p, order, null));
+        return results;
+    }
+
+    private RouteSolver solverFor(int stops, int startIdx) {
+        return isExact(stops, startIdx) ? new HeldKarpSolver() : solver;
+    }
+
+    private boolean isExact(int stops, int startIdx) {
+        return stops <= exactMaxStops && HeldKarpSolver.supports(stops, startIdx);
+    }
+
+    /** Geocoded stops; the start (if any) is index 0. */
+    private static final class Located {
+        final List<Location> locs;
+        final int startIdx;
+
+        Located(List<Location> locs, int startIdx) {
+            this.locs = locs;
+            this.startIdx = startIdx;
+        }
+    }
+
+    /** Geocoded stops and their matrix; the start (if any) is index 0. */
+    private static final class Problem {
+        final List<Location> locs;
+        final MatrixResult matrix;
+        final int startIdx;
+        final boolean approximate;
+
+        Problem(List<Location> locs, MatrixResult matrix, int startIdx, boolean approximate) {
+            this.locs = locs;
+            this.matrix = matrix;
+            this.startIdx = startIdx;
+            this.approximate = approximate;
+        }
+    }
+
+    private Problem prepare(String startAddress, List<String> deliveryAddresses) throws Exception {
+        return Futures.await(prepareAsync(startAddress, deliveryAddresses));
+    }
+
+    private CompletableFuture<Problem> prepareAsync(String startAddress, List<String> deliveryAddresses) {
+        // 2) Build matrix as soon as the last address is known
+        return locateAsync(startAddress, deliveryAddresses).thenCompose(this::problemAsync);
+    }
+
+    /**
+     * The matrix for the geocoded stops. With the offline fallback on, a network failure gives the
+     * approximate matrix instead, for every entry point alike. Geocoding has no such fallback:
+     * without coordinates there is nothing to estimate, so offline every address has to be in the
+     * geocode cache already.
+     */
+    private CompletableFuture<Problem> problemAsync(Located g) {
+        CompletableFuture<Problem> real = routing.buildMatrixAsync(g.locs)
+                .thenApply(m -> new Problem(g.locs, m, g.startIdx, false));
+        if (!offlineFallback) return real;
+        return real.exceptionallyCompose(t -> {
+            // no connection to the matrix service: straight-line estimates are better than nothing
+            if (!(Futures.cause(t) instanceof IOException)) return CompletableFuture.failedFuture(t);
+            try {
+                return CompletableFuture.completedFuture(approximateProblem(g));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private CompletableFuture<Located> locateAsync(String startAddress, List<String> deliveryAddresses) {
         List<String> all = new ArrayList<>();
 
         boolean hasStart = startAddress != null && !startAddress.trim().isEmpty();
         if (hasStart) all.add(startAddress.trim());
         all.addAll(deliveryAddresses);
 
-        // 1) Geocode all
-        List<Location> locs = new ArrayList<>();
-        for (String a : all) {
-            locs.add(routing.geocode(a));
-        }
+        // 1) Geocode all (provider may run requests in parallel; order is preserved)
+        return routing.geocodeBatchAsync(all)
+                .thenApply(geo -> new Located(locationsOrThrow(geo, offlineFallback), hasStart ? 0 : -1));
+    }
 
-        // 2) Build matrix
-        MatrixResult m = routing.buildMatrix(locs);
-
-        // 3) Solve order (path). If hasStart: fix index 0 as start.
-        // Otherwise: choose best "start" by trying nearest-neighbor from each node (small n).
-        int n = locs.size();
-        int[] order;
-        if (hasStart) {
-            order = nearestNeighborPathFromStart(0, m.durationsSeconds);
-            order = TwoOpt.improvePath(order, m.durationsSeconds);
-        } else {
-            order = bestStartByGreedy(m.durationsSeconds);
-            order = TwoOpt.improvePath(order, m.durationsSeconds);
-        }
+    // 4) Build ordered list + totals
+    private static RouteResult buildResult(Problem p, int[] order, SolveStats stats) {
+        return buildResult(p, order, stats, null);
+    }
+
+    private static RouteResult buildResult(Problem p, int[] order, SolveStats stats, double[] serviceStarts) {
+        List<Location> locs = p.locs;
+        MatrixResult m = p.matrix;
 
-        // 4) Build ordered list + totals
         List<Location> ordered = new ArrayList<>();
         double totalDur = 0.0;
         double totalDist = 0.0;
@@ -58,8 +414,8 @@ public class RouteOptimizer {
         for (int i = 0; i < order.length - 1; i++) {
             int a = order[i];
             int b = order[i + 1];
-            double d = m.durationsSeconds[a][b];
-            double s = m.distancesMeters[a][b];
+            double d = m.durationsSeconds.get(a, b);
+            double s = m.distancesMeters.get(a, b);
             if (Double.isInfinite(d) || Double.isInfinite(s)) {
                 throw new RuntimeException("Нет маршрута между точками: " + locs.get(a).address() + " -> " + locs.get(b).address());
             }
@@ -67,62 +423,30 @@ public class RouteOptimizer {
             totalDist += s;
         }
 
-        return new RouteResult(ordered, totalDist, totalDur);
-    }
-
-    private int[] nearestNeighborPathFromStart(int startIdx, double[][] cost) {
-        int n = cost.length;
-        boolean[] used = new boolean[n];
-        int[] order = new int[n];
-
-        order[0] = startIdx;
-        used[startIdx] = true;
-
-        for (int pos = 1; pos < n; pos++) {
-            int prev = order[pos - 1];
-            int best = -1;
-            double bestCost = Double.POSITIVE_INFINITY;
-
-            for (int j = 0; j < n; j++) {
-                if (used[j]) continue;
-                double c = cost[prev][j];
-                if (c < bestCost) {
-                    bestCost = c;
-                    best = j;
-                }
-            }
-
-            if (best == -1) throw new RuntimeException("Не удалось построить маршрут (разрыв в матрице).");
-            order[pos] = best;
-            used[best] = true;
-        }
-        return order;
+        return new RouteResult(ordered, totalDist, totalDur, stats, serviceStarts, p.approximate);
     }
 
-    private int[] bestStartByGreedy(double[][] cost) {
-        int n = cost.length;
-        int[] bestOrder = null;
-        double bestTotal = Double.POSITIVE_INFINITY;
-
-        for (int start = 0; start < n; start++) {
-            int[] o = nearestNeighborPathFromStart(start, cost);
-            double t = totalCost(o, cost);
-            if (t < bestTotal) {
-                bestTotal = t;
-                bestOrder = o;
+    /** @param offlineFallback say that offline routing needs cached addresses when the network failed */
+    private static List<Location> locationsOrThrow(List<GeocodeResult> geo, boolean offlineFallback) {
+        List<Location> locs = new ArrayList<>(geo.size());
+        List<String> failed = new ArrayList<>();
+        boolean network = false;
+        for (GeocodeResult g : geo) {
+            if (g.isOk()) {
+                locs.add(g.location());
+            } else {
+                failed.add(g.address() + " — " + g.error().getMessage());
+                network |= Futures.cause(g.error()) instanceof IOException;
             }
         }
-        if (bestOrder == null) throw new RuntimeException("Не удалось выбрать старт.");
-        return bestOrder;
-    }
 
-    private double totalCost(int[] order, double[][] cost) {
-        double sum = 0.0;
-        for (int i = 0; i < order.length - 1; i++) {
-            double c = cost[order[i]][order[i + 1]];
-            if (Double.isInfinite(c)) return Double.POSITIVE_INFINITY;
-            sum += c;
+        if (!failed.isEmpty()) {
+            String hint = offlineFallback && network
+                    ? "\nБез связи маршрут строится только по адресам, которые уже есть в кэше геокодирования."
+                    : "";
+            throw new RuntimeException("Не удалось геокодировать адреса (" + failed.size() + "):\n"
+                    + String.join("\n", failed) + hint);
         }
-        return sum;
+        return locs;
     }
 }
@@ -0,0 +1,27 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/**
+ * Strategy that orders the stops of a single route (an open path, not a cycle).
+ */
+public interface RouteSolver {
+
+    /**
+     * @param cost     travel cost from i to j
+     * @param startIdx stop that must come first, or -1 to let the solver choose
+     * @return visiting order, a permutation of 0..n-1
+     */
+    int[] solve(CostMatrix cost, int startIdx);
+
+    /**
+     * Same with delivery time windows. By default the route is ordered by cost first and then
+     * fitted to the windows by the windowed local search (which may trade cost for punctuality).
+     *
+     * @param windows null = no windows
+     */
+    default int[] solve(CostMatrix cost, int startIdx, TimeWindows windows) {
+        int[] order = solve(cost, startIdx);
+        return windows == null ? order : WindowedSearch.fit(order, cost, windows);
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the start of a free-start route: builds a nearest-neighbor path from each candidate
+ * start in parallel (ForkJoin common pool) and keeps the cheapest.
+ *
+ * A construction is abandoned as soon as its partial cost plus a lower bound for the rest
+ * (cheapest way into every unvisited stop) exceeds the best complete path found so far.
+ * Candidates can be limited to the most peripheral stops: the optimal open path tends to
+ * start at an extreme point.
+ */
+final class StartSelection {
+
+    private static final class Best {
+        final int[] order;
+        final double total;
+        final int start;
+
+        Best(int[] order, double total, int start) {
+            this.order = order;
+            this.total = total;
+            this.start = start;
+        }
+    }
+
+    private StartSelection() {}
+
+    /**
+     * @param maxCandidates try only this many most peripheral stops as start; 0 or less means all
+     * @return the cheapest greedy path over the candidate starts (same as the exhaustive
+     *         search when all stops are candidates)
+     */
+    static int[] bestStartByGreedy(CostMatrix cost, int maxCandidates) {
+        return bestStartByGreedy(cost, maxCandidates, Deadline.none());
+    }
+
+    /** Same, but candidates not yet started when the deadline passes are skipped. */
+    static int[] bestStartByGreedy(CostMatrix cost, int maxCandidates, Deadline deadline) {
+        int n = cost.size();
+        if (n == 0) throw new RuntimeException("Не удалось выбрать старт.");
+        if (n == 1) return new int[]{0};
+
+        double[] minIn = new double[n];
+        double[] spread = new double[n];
+        Arrays.fill(minIn, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                double c = cost.get(i, j);
+                if (c < minIn[j]) minIn[j] = c;
+                if (!Double.isInfinite(c)) {
+                    spread[i] += c;
+                    spread[j] += c;
+                }
+            }
+        }
+        double minInTotal = 0.0;
+        for (double v : minIn) minInTotal += v;
+
+        int[] byPeriphery = byDescendingSpread(spread);
+        int[] candidates = (maxCandidates > 0 && maxCandidates < n)
+                ? Arrays.copyOf(byPeriphery, maxCandidates)
+                : byPeriphery;
+
+        // the most peripheral start first, sequentially, to get a bound for pruning
+        AtomicReference<Best> best = new AtomicReference<>();
+        final double lbAll = minInTotal;
+        offer(best, candidates[0], cost, minIn, lbAll);
+
+        IntStream.range(1, candidates.length).parallel()
+                .forEach(k -> {
+                    if (!deadline.passed()) offer(best, candidates[k], cost, minIn, lbAll);
+                });
+
+        Best b = best.get();
+        if (b == null) throw new RuntimeException("Не удалось построить маршрут (разрыв в матрице).");
+        return b.order;
+    }
+
+    private static void offer(AtomicReference<Best> best, int start, CostMatrix cost, double[] minIn, double minInTotal) {
+        Best cur = best.get();
+        double bound = cur == null ? Double.POSITIVE_INFINITY : cur.total;
+
+        int[] o = greedyFrom(start, cost, minIn, minInTotal, bound);
+        if (o == null) return;
+        double t = PathConstruction.totalCost(o, cost);
+        if (Double.isInfinite(t)) return;
+
+        Best mine = new Best(o, t, start);
+        // ties go to the lower start index, like the sequential scan did
+        best.accumulateAndGet(mine, (a, b) ->
+                a == null || b.total < a.total || (b.total == a.total && b.start < a.start) ? b : a);
+    }
+
+    /**
+     * Nearest-neighbor path from {@code start}; null if it cannot beat {@code bound}
+     * or hits a gap in the matrix.
+     */
+    private static int[] greedyFrom(int start, CostMatrix cost, double[] minIn, double minInTotal, double bound) {
+        int n = cost.size();
+        int[] order = new int[n];
+        int[] rest = new int[n - 1];
+        for (int j = 0, k = 0; j < n; j++) if (j != start) rest[k++] = j;
+        int restSize = n - 1;
+
+        double tolerance = 1e-9 * Math.max(1.0, Math.abs(bound));
+        double partial = 0.0;
+        double lbRest = minInTotal - minIn[start];
+        order[0] = start;
+
+        for (int pos = 1; pos < n; pos++) {
+            int prev = order[pos - 1];
+            int bestK = -1;
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+
+            for (int k = 0; k < restSize; k++) {
+                int j = rest[k];
+                double c = cost.get(prev, j);
+                if (c < bestCost || (c == bestCost && best >= 0 && j < best)) {
+                    bestCost = c;
+                    best = j;
+                    bestK = k;
+                }
+            }
+            if (best == -1) return null;
+
+            order[pos] = best;
+            rest[bestK] = rest[--restSize];
+
+            partial += bestCost;
+            lbRest -= minIn[best];
+            if (partial + lbRest > bound + tolerance) return null;
+        }
+        return order;
+    }
+
+    private static int[] byDescendingSpread(double[] spread) {
+        Integer[] idx = new Integer[spread.length];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, (a, b) -> Double.compare(spread[b], spread[a]));
+        int[] out = new int[idx.length];
+        for (int i = 0; i < out.length; i++) out[i] = idx[i];
+        return out;
+    }
+}
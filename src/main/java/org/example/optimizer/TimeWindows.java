@@ -0,0 +1,135 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/**
+ * Per-stop time windows and service times, indexed like the cost matrix (seconds after departure).
+ *
+ * Feasibility of a move is checked by concatenating summaries of unchanged route pieces
+ * ({@link Seg}, after Vidal et al., "A hybrid genetic algorithm with adaptive diversity management
+ * for a large class of vehicle routing problems with time-windows", 2013): each summary is four
+ * numbers, and joining two of them is O(1), so prefix ⊕ moved part ⊕ suffix needs no re-simulation.
+ * Lateness is measured as "time warp": how far the clock would have to be turned back to make it.
+ */
+public final class TimeWindows {
+
+    static final double EPS = 1e-6;
+
+    private final double[] earliest;
+    private final double[] latest;
+    private final double[] service;
+
+    /**
+     * @param earliest earliest service start per stop
+     * @param latest   latest service start per stop (+∞ = none)
+     * @param service  time spent at each stop
+     */
+    public TimeWindows(double[] earliest, double[] latest, double[] service) {
+        if (earliest.length != latest.length || earliest.length != service.length) {
+            throw new IllegalArgumentException("Размеры массивов окон не совпадают.");
+        }
+        this.earliest = earliest.clone();
+        this.latest = latest.clone();
+        this.service = service.clone();
+    }
+
+    public int size() { return earliest.length; }
+
+    double earliest(int v) { return earliest[v]; }
+    double latest(int v) { return latest[v]; }
+
+    /**
+     * Service start at every stop of {@code order}, waiting for windows that have not opened yet
+     * (a late stop is recorded as served when reached).
+     */
+    public double[] serviceStarts(int[] order, CostMatrix cost) {
+        double[] start = new double[order.length];
+        double t = 0.0;
+        for (int p = 0; p < order.length; p++) {
+            int v = order[p];
+            if (p > 0) t += cost.get(order[p - 1], v);
+            t = Math.max(t, earliest[v]);
+            start[p] = t;
+            t += service[v];
+        }
+        return start;
+    }
+
+    /** Total time warp of {@code order}; 0 means every window is met. */
+    public double lateness(int[] order, CostMatrix cost) {
+        Seg s = new Seg();
+        Seg one = new Seg();
+        for (int v : order) {
+            single(one, v);
+            concat(s, s, one, cost);
+        }
+        return s.warp;
+    }
+
+    /**
+     * Summary of a stop sequence: total duration (travel + service + waiting), accumulated time warp,
+     * and the earliest/latest service start at its first stop that keep the warp minimal.
+     */
+    static final class Seg {
+        int first = -1;
+        int last = -1;
+        double duration;
+        double warp;
+        double earliest;
+        double latest;
+
+        boolean isEmpty() { return first < 0; }
+
+        void clear() { first = -1; last = -1; }
+
+        void set(Seg o) {
+            first = o.first;
+            last = o.last;
+            duration = o.duration;
+            warp = o.warp;
+            earliest = o.earliest;
+            latest = o.latest;
+        }
+    }
+
+    void single(Seg out, int v) {
+        out.first = v;
+        out.last = v;
+        out.duration = service[v];
+        out.warp = 0.0;
+        out.earliest = earliest[v];
+        out.latest = latest[v];
+    }
+
+    /** out = a ⊕ b; either may be empty, and out may be a or b. */
+    void concat(Seg out, Seg a, Seg b, CostMatrix cost) {
+        if (a.isEmpty()) {
+            out.set(b);
+            return;
+        }
+        if (b.isEmpty()) {
+            out.set(a);
+            return;
+        }
+        double travel = cost.get(a.last, b.first);
+        if (!(travel < PathPrefix.UNREACHABLE)) travel = PathPrefix.UNREACHABLE;
+
+        double delta = a.duration - a.warp + travel;
+        double wait = Math.max(b.earliest - delta - a.latest, 0.0);
+        double warp = Math.max(a.earliest + delta - b.latest, 0.0);
+
+        double duration = a.duration + b.duration + travel + wait;
+        double totalWarp = a.warp + b.warp + warp;
+        double e = Math.max(b.earliest - delta, a.earliest) - wait;
+        double l = Math.min(b.latest - delta, a.latest) + warp;
+        int first = a.first;
+        int last = b.last;
+
+        out.first = first;
+        out.last = last;
+        out.duration = duration;
+        out.warp = totalWarp;
+        out.earliest = e;
+        out.latest = l;
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.optimizer;
 
+import org.example.routing.CostMatrix;
+
 public final class TwoOpt {
 
     private TwoOpt() {}
@@ -7,44 +9,67 @@ public final class TwoOpt {
     /**
      * 2-opt optimization over a path (not necessarily a cycle).
      * We keep the first index fixed (start point), and optimize the rest order.
+     * Deltas are exact on asymmetric matrices: reversing a segment also flips its inner edges.
      */
-    public static int[] improvePath(int[] order, double[][] cost) {
+    public static int[] improvePath(int[] order, CostMatrix cost) {
+        return improvePath(order, cost, null);
+    }
+
+    /**
+     * Same, honoring time windows: a reversal is taken if it lowers the lateness, or keeps it
+     * and lowers the cost. The reversed segment's summary grows by one stop per k, so each
+     * candidate is checked in O(1).
+     *
+     * @param windows null = no windows
+     */
+    public static int[] improvePath(int[] order, CostMatrix cost, TimeWindows windows) {
+        return improvePath(order, cost, windows, Progress.NONE);
+    }
+
+    /** Same, reporting the path after every pass that changed it. */
+    static int[] improvePath(int[] order, CostMatrix cost, TimeWindows windows, Progress progress) {
         boolean improved = true;
         int n = order.length;
 
         // If too small - nothing to do
         if (n < 4) return order;
 
+        PathPrefix prefix = new PathPrefix(order, cost);
+        WindowedPath wp = windows == null ? null : new WindowedPath(order, cost, windows);
+        TimeWindows.Seg rev = new TimeWindows.Seg();
+
         while (improved) {
             improved = false;
 
             // i starts from 1 to keep start fixed at 0
             for (int i = 1; i < n - 2; i++) {
+                if (wp != null) wp.reversed(rev, i, i);
                 for (int k = i + 1; k < n - 1; k++) {
-                    double delta = gain(order, cost, i, k);
-                    if (delta < -1e-9) {
+                    double delta = prefix.reversalDelta(i, k);
+                    boolean take;
+                    if (wp == null) {
+                        take = delta < -1e-9;
+                    } else {
+                        wp.prepend(rev, order[k]); // rev = order[k], order[k-1], …, order[i]
+                        take = wp.accepts(i - 1, rev, k + 1, delta);
+                    }
+                    if (take) {
                         reverse(order, i, k);
+                        prefix.invalidateFrom(i);
+                        progress.moved(order, delta);
+                        if (wp != null) {
+                            wp.invalidate(i, k);
+                            wp.reversed(rev, i, k);
+                        }
                         improved = true;
                     }
                 }
             }
+            if (improved) progress.improved(order);
         }
         return order;
     }
 
-    // Gain if we reverse segment [i..k]
-    private static double gain(int[] order, double[][] cost, int i, int k) {
-        int a = order[i - 1];
-        int b = order[i];
-        int c = order[k];
-        int d = order[k + 1];
-
-        double before = cost[a][b] + cost[c][d];
-        double after  = cost[a][c] + cost[b][d];
-
-        return after - before;
-    }
-
     private static void reverse(int[] order, int i, int k) {
         while (i < k) {
             int tmp = order[i];
@@ -0,0 +1,124 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+
+/**
+ * Time-window summaries of every prefix and suffix of a path (forward and backward slack),
+ * so a move that keeps a prefix and a suffix intact is checked in O(1) plus the size of the
+ * part it rearranges. Like {@link PathPrefix}, the arrays are rebuilt lazily after a move.
+ */
+final class WindowedPath {
+
+    private final int[] order;
+    private final CostMatrix cost;
+    private final TimeWindows tw;
+    private final TimeWindows.Seg[] fwd; // fwd[p] = order[0..p]
+    private final TimeWindows.Seg[] bwd; // bwd[p] = order[p..n-1]
+    private final TimeWindows.Seg one = new TimeWindows.Seg();
+    private final TimeWindows.Seg tmp = new TimeWindows.Seg();
+    private int fwdValidTo = -1;
+    private int bwdValidFrom;
+
+    WindowedPath(int[] order, CostMatrix cost, TimeWindows tw) {
+        this.order = order;
+        this.cost = cost;
+        this.tw = tw;
+        int n = order.length;
+        this.fwd = new TimeWindows.Seg[n];
+        this.bwd = new TimeWindows.Seg[n];
+        for (int p = 0; p < n; p++) {
+            fwd[p] = new TimeWindows.Seg();
+            bwd[p] = new TimeWindows.Seg();
+        }
+        this.bwdValidFrom = n;
+    }
+
+    /** The path changed at positions lo..hi. */
+    void invalidate(int lo, int hi) {
+        fwdValidTo = Math.min(fwdValidTo, lo - 1);
+        bwdValidFrom = Math.max(bwdValidFrom, hi + 1);
+    }
+
+    /** Time warp of the whole current path. */
+    double warp() {
+        return order.length == 0 ? 0.0 : prefix(order.length - 1).warp;
+    }
+
+    /**
+     * Whether order[0..prefixEnd] ⊕ middle ⊕ order[suffixStart..] beats the current path:
+     * less time warp, or the same warp and {@code costDelta} &lt; 0.
+     */
+    boolean accepts(int prefixEnd, TimeWindows.Seg middle, int suffixStart, double costDelta) {
+        if (!mayAccept(costDelta)) return false;
+        double current = warp();
+
+        tmp.clear();
+        if (prefixEnd >= 0) tmp.set(prefix(prefixEnd));
+        tw.concat(tmp, tmp, middle, cost);
+        if (suffixStart < order.length) tw.concat(tmp, tmp, suffix(suffixStart), cost);
+
+        if (tmp.warp < current - TimeWindows.EPS) return true;
+        return tmp.warp <= current + TimeWindows.EPS && costDelta < -1e-9;
+    }
+
+    /** Cheap pre-check: on a path without lateness only cheaper moves can be taken. */
+    boolean mayAccept(double costDelta) {
+        return costDelta < -1e-9 || warp() > TimeWindows.EPS;
+    }
+
+    /** out = order[from..to] in path order (to &lt; from gives an empty summary). */
+    void forward(TimeWindows.Seg out, int from, int to) {
+        out.clear();
+        for (int p = from; p <= to; p++) append(out, order[p]);
+    }
+
+    /** out = order[from..to] walked backwards, i.e. order[to], order[to-1], …, order[from]. */
+    void reversed(TimeWindows.Seg out, int from, int to) {
+        out.clear();
+        for (int p = to; p >= from; p--) append(out, order[p]);
+    }
+
+    /** out = a ⊕ b */
+    void concat(TimeWindows.Seg out, TimeWindows.Seg a, TimeWindows.Seg b) {
+        tw.concat(out, a, b, cost);
+    }
+
+    /** out = out ⊕ v */
+    void append(TimeWindows.Seg out, int v) {
+        tw.single(one, v);
+        tw.concat(out, out, one, cost);
+    }
+
+    /** out = v ⊕ out */
+    void prepend(TimeWindows.Seg out, int v) {
+        tw.single(one, v);
+        tw.concat(out, one, out, cost);
+    }
+
+    private TimeWindows.Seg prefix(int p) {
+        while (fwdValidTo < p) {
+            int q = ++fwdValidTo;
+            if (q == 0) {
+                tw.single(fwd[0], order[0]);
+            } else {
+                tw.single(one, order[q]);
+                tw.concat(fwd[q], fwd[q - 1], one, cost);
+            }
+        }
+        return fwd[p];
+    }
+
+    private TimeWindows.Seg suffix(int p) {
+        int n = order.length;
+        while (bwdValidFrom > p) {
+            int q = --bwdValidFrom;
+            if (q == n - 1) {
+                tw.single(bwd[q], order[q]);
+            } else {
+                tw.single(one, order[q]);
+                tw.concat(bwd[q], one, bwd[q + 1], cost);
+            }
+        }
+        return bwd[p];
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.optimizer;
+
+import org.example.config.AppConfig;
+import org.example.routing.CostMatrix;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Fits a cost-ordered route to time windows: polishes it and a deadline-ordered alternative with
+ * the windowed local search, and keeps the one that is less late, then cheaper.
+ */
+final class WindowedSearch {
+
+    private WindowedSearch() {}
+
+    /** @param order cost-ordered route; its first stop stays first */
+    static int[] fit(int[] order, CostMatrix cost, TimeWindows windows) {
+        int[] byCost = polish(order.clone(), cost, windows);
+        int[] byDeadline = polish(byDeadline(order, windows), cost, windows);
+
+        double lateCost = windows.lateness(byCost, cost);
+        double lateDeadline = windows.lateness(byDeadline, cost);
+        if (Math.abs(lateCost - lateDeadline) > TimeWindows.EPS) {
+            return lateCost < lateDeadline ? byCost : byDeadline;
+        }
+        return PathConstruction.totalCost(byCost, cost) <= PathConstruction.totalCost(byDeadline, cost)
+                ? byCost : byDeadline;
+    }
+
+    /** Same first stop, the rest by closing time (then opening time). */
+    private static int[] byDeadline(int[] order, TimeWindows windows) {
+        Integer[] rest = new Integer[order.length - 1];
+        for (int p = 1; p < order.length; p++) rest[p - 1] = order[p];
+        Arrays.sort(rest, Comparator.<Integer>comparingDouble(windows::latest).thenComparingDouble(windows::earliest));
+
+        int[] out = new int[order.length];
+        out[0] = order[0];
+        for (int p = 1; p < order.length; p++) out[p] = rest[p - 1];
+        return out;
+    }
+
+    private static int[] polish(int[] order, CostMatrix cost, TimeWindows windows) {
+        if (order.length < AppConfig.DEFAULT_NEIGHBOR_SEARCH_MIN_STOPS) TwoOpt.improvePath(order, cost, windows);
+        return NeighborLocalSearch.improvePath(order, cost, AppConfig.DEFAULT_NEIGHBORS, windows);
+    }
+}
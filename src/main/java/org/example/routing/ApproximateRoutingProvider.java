@@ -0,0 +1,112 @@
+package org.example.routing;
+
+import org.example.config.AppConfig;
+import org.example.model.Location;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Matrix without the network: great-circle (haversine) distance times a detour factor for the
+ * road network, and a duration from a simple speed model (fixed time per leg for parking and
+ * turns, plus distance at an average speed). Geocoding is passed to the wrapped provider.
+ *
+ * Good enough to order stops for a preview or when ORS is unreachable; 500 stops take a few
+ * milliseconds. Distances are symmetric, so the matrices keep one triangle.
+ */
+public class ApproximateRoutingProvider implements RoutingProvider {
+
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    private final RoutingProvider geocoder;
+    private final double detourFactor;
+    private final double metersPerSecond;
+    private final double legSeconds;
+    private final boolean float32;
+
+    /**
+     * @param geocoder     answers geocode calls (usually the real, cached provider)
+     * @param detourFactor road distance / straight-line distance, e.g. 1.3 in a city
+     * @param speedKmh     average speed on the road
+     * @param legSeconds   added to every leg between different points
+     * @param float32      float cells instead of double (matrix.storage)
+     */
+    public ApproximateRoutingProvider(RoutingProvider geocoder, double detourFactor, double speedKmh,
+                                      double legSeconds, boolean float32) {
+        if (detourFactor < 1.0 || speedKmh <= 0.0 || legSeconds < 0.0) {
+            throw new IllegalArgumentException("Некорректная модель приблизительной матрицы.");
+        }
+        this.geocoder = geocoder;
+        this.detourFactor = detourFactor;
+        this.metersPerSecond = speedKmh / 3.6;
+        this.legSeconds = legSeconds;
+        this.float32 = float32;
+    }
+
+    public ApproximateRoutingProvider(RoutingProvider geocoder, AppConfig cfg) {
+        this(geocoder, cfg.approxDetourFactor(), cfg.approxSpeedKmh(), cfg.approxLegSeconds(), cfg.matrixFloat32());
+    }
+
+    @Override
+    public Location geocode(String address) throws Exception {
+        return geocoder.geocode(address);
+    }
+
+    @Override
+    public List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+        return geocoder.geocodeBatch(addresses);
+    }
+
+    @Override
+    public CompletableFuture<Location> geocodeAsync(String address) {
+        return geocoder.geocodeAsync(address);
+    }
+
+    @Override
+    public CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+        return geocoder.geocodeBatchAsync(addresses);
+    }
+
+    @Override
+    public MatrixResult buildMatrix(List<Location> locations) {
+        int n = locations.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] cosLat = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = Math.toRadians(locations.get(i).lat());
+            lon[i] = Math.toRadians(locations.get(i).lon());
+            cosLat[i] = Math.cos(lat[i]);
+        }
+
+        CostMatrix durs = CostMatrix.symmetric(n, float32);
+        CostMatrix dists = CostMatrix.symmetric(n, float32);
+        double scale = 2.0 * EARTH_RADIUS_M * detourFactor;
+        double[] row = new double[n];
+        for (int j = 0; j < n; j++) {
+            double latJ = lat[j];
+            double lonJ = lon[j];
+            double cosJ = cosLat[j];
+            // one triangle row at a time, in a plain primitive loop the JIT can unroll
+            for (int i = 0; i < j; i++) {
+                double sLat = Math.sin((lat[i] - latJ) * 0.5);
+                double sLon = Math.sin((lon[i] - lonJ) * 0.5);
+                double h = sLat * sLat + cosLat[i] * cosJ * sLon * sLon;
+                row[i] = scale * Math.asin(Math.sqrt(Math.min(1.0, h)));
+            }
+            for (int i = 0; i < j; i++) {
+                double d = row[i];
+                dists.set(i, j, d);
+                durs.set(i, j, d > 0.0 ? legSeconds + d / metersPerSecond : 0.0);
+            }
+            dists.set(j, j, 0.0);
+            durs.set(j, j, 0.0);
+        }
+        return new MatrixResult(durs, dists, false);
+    }
+
+    @Override
+    public CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
+        return CompletableFuture.completedFuture(buildMatrix(locations));
+    }
+}
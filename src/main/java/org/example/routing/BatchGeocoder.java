@@ -0,0 +1,51 @@
+package org.example.routing;
+
+import org.example.model.Location;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs single-address geocode calls in parallel with a concurrency cap and a request rate limit.
+ * Results keep input order; a failing address is reported in its slot and does not stop the rest.
+ */
+public final class BatchGeocoder {
+
+    @FunctionalInterface
+    public interface AsyncGeocoder {
+        CompletableFuture<Location> geocode(String address);
+    }
+
+    private final int concurrency;
+    private final RateLimiter limiter;
+
+    /**
+     * @param concurrency max requests in flight
+     * @param requestsPerSecond max request rate, 0 or less means unlimited
+     */
+    public BatchGeocoder(int concurrency, double requestsPerSecond) {
+        this.concurrency = Math.max(1, concurrency);
+        this.limiter = new RateLimiter(requestsPerSecond);
+    }
+
+    /**
+     * No thread waits for a response or for the rate limit: a call starts when a slot of the
+     * concurrency cap frees up, and is scheduled for its rate-limit slot.
+     */
+    public CompletableFuture<List<GeocodeResult>> geocodeAllAsync(List<String> addresses, AsyncGeocoder geocoder) {
+        return Futures.bounded(addresses.size(), concurrency, i -> {
+            String address = addresses.get(i);
+            long wait = limiter.reserveNanos();
+            Executor slot = wait > 0
+                    ? CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS)
+                    : Runnable::run;
+            return CompletableFuture.supplyAsync(() -> address, slot)
+                    .thenCompose(geocoder::geocode)
+                    .handle((loc, err) -> err == null
+                            ? GeocodeResult.ok(address, loc)
+                            : GeocodeResult.failed(address, Futures.exception(err)));
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.routing;
+
+import org.example.model.Location;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorator that answers geocode requests from a {@link GeocodeCache} and only sends
+ * misses to the wrapped provider. Matrix requests are passed through unchanged.
+ */
+public class CachingRoutingProvider implements RoutingProvider {
+
+    private final RoutingProvider delegate;
+    private final GeocodeCache cache;
+    private volatile boolean writeFailed; // reported once, not once per address
+
+    public CachingRoutingProvider(RoutingProvider delegate, GeocodeCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Location geocode(String address) throws Exception {
+        return Futures.await(geocodeAsync(address));
+    }
+
+    @Override
+    public List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+        return Futures.await(geocodeBatchAsync(addresses));
+    }
+
+    @Override
+    public MatrixResult buildMatrix(List<Location> locations) throws Exception {
+        return delegate.buildMatrix(locations);
+    }
+
+    @Override
+    public List<double[]> routeGeometry(List<Location> stops) throws Exception {
+        return delegate.routeGeometry(stops);
+    }
+
+    @Override
+    public CompletableFuture<Location> geocodeAsync(String address) {
+        Location cached = cache.get(address);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        return delegate.geocodeAsync(address).thenApply(l -> {
+            remember(address, l);
+            return l;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+        int n = addresses.size();
+        GeocodeResult[] out = new GeocodeResult[n];
+
+        List<String> missing = new ArrayList<>();
+        List<Integer> missingIdx = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String a = addresses.get(i);
+            Location cached = cache.get(a);
+            if (cached != null) {
+                out[i] = GeocodeResult.ok(a, cached);
+            } else {
+                missing.add(a);
+                missingIdx.add(i);
+            }
+        }
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(List.of(out));
+
+        return delegate.geocodeBatchAsync(missing).thenApply(fetched -> {
+            for (int j = 0; j < fetched.size(); j++) {
+                GeocodeResult g = fetched.get(j);
+                if (g.isOk()) remember(g.address(), g.location());
+                out[missingIdx.get(j)] = g;
+            }
+            return List.of(out);
+        });
+    }
+
+    @Override
+    public CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
+        return delegate.buildMatrixAsync(locations);
+    }
+
+    /** The cache is only a shortcut: failing to write it must not fail a geocode that worked. */
+    private void remember(String address, Location l) {
+        try {
+            cache.put(address, l);
+        } catch (IOException e) {
+            if (!writeFailed) {
+                writeFailed = true;
+                System.err.println("Не удалось записать кэш геокодинга: " + e.getMessage());
+            }
+        }
+    }
+
+    public GeocodeCache cache() { return cache; }
+}
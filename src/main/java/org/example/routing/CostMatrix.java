@@ -0,0 +1,38 @@
+package org.example.routing;
+
+/**
+ * Square matrix of travel costs between locations; get(i, j) is the cost from i to j.
+ * Missing connections are {@link Double#POSITIVE_INFINITY}.
+ *
+ * Implementations keep all cells in one flat primitive array (no per-row objects),
+ * optionally in float32 and/or as a single triangle for symmetric data.
+ */
+public interface CostMatrix {
+
+    int size();
+
+    double get(int i, int j);
+
+    void set(int i, int j, double value);
+
+    /** True if set(i, j) also defines (j, i). */
+    default boolean isSymmetric() { return false; }
+
+    /** Row-major n × n matrix. */
+    static CostMatrix dense(int n, boolean float32) {
+        checkSize((long) n * n);
+        return float32 ? new FloatCostMatrix(n) : new DenseCostMatrix(n);
+    }
+
+    /** Half-storage matrix for symmetric costs (e.g. straight-line distances). */
+    static CostMatrix symmetric(int n, boolean float32) {
+        checkSize((long) n * (n + 1) / 2);
+        return new SymmetricCostMatrix(n, float32);
+    }
+
+    private static void checkSize(long cells) {
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Слишком большая матрица: " + cells + " ячеек");
+        }
+    }
+}
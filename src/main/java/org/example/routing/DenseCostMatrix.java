@@ -0,0 +1,24 @@
+package org.example.routing;
+
+/** Row-major n × n matrix of doubles in a single array. */
+final class DenseCostMatrix implements CostMatrix {
+    private final int n;
+    private final double[] cells;
+
+    DenseCostMatrix(int n) {
+        this.n = n;
+        this.cells = new double[n * n];
+    }
+
+    @Override public int size() { return n; }
+
+    @Override
+    public double get(int i, int j) {
+        return cells[i * n + j];
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        cells[i * n + j] = value;
+    }
+}
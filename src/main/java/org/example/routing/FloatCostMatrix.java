@@ -0,0 +1,27 @@
+package org.example.routing;
+
+/**
+ * Row-major n × n matrix stored as float32: half the memory of {@link DenseCostMatrix}.
+ * Seconds and meters of a city route stay well within float precision (~1e-7 relative).
+ */
+final class FloatCostMatrix implements CostMatrix {
+    private final int n;
+    private final float[] cells;
+
+    FloatCostMatrix(int n) {
+        this.n = n;
+        this.cells = new float[n * n];
+    }
+
+    @Override public int size() { return n; }
+
+    @Override
+    public double get(int i, int j) {
+        return cells[i * n + j];
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        cells[i * n + j] = (float) value;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.routing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Glue between the blocking and the {@link java.util.concurrent.CompletableFuture} halves of the
+ * routing API: running blocking calls off the caller's thread, waiting with the original exception,
+ * and starting many async calls with a cap on how many are in flight.
+ */
+public final class Futures {
+
+    /** Runs blocking provider calls for the default async methods; threads only live while busy. */
+    private static final ExecutorService BLOCKING;
+    static {
+        AtomicInteger seq = new AtomicInteger();
+        BLOCKING = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "routing-async-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private Futures() {}
+
+    /** Runs a blocking call on a background thread. */
+    static <T> CompletableFuture<T> call(Callable<T> call) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        BLOCKING.execute(() -> {
+            try {
+                f.complete(call.call());
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * Waits for {@code f} and returns its value, rethrowing the exception it failed with
+     * (not wrapped in ExecutionException). Interrupting the wait cancels {@code f} itself only:
+     * CompletableFuture does not pass cancellation back to the stages {@code f} was derived from,
+     * so calls already sent behind it run to the end and their results are dropped.
+     */
+    public static <T> T await(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof Exception) throw (Exception) c;
+            if (c instanceof Error) throw (Error) c;
+            throw e;
+        }
+    }
+
+    /** The exception a dependent stage actually failed with. */
+    public static Throwable cause(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /** {@link #cause(Throwable)} as an Exception, for APIs that only carry those. */
+    static Exception exception(Throwable t) {
+        Throwable c = cause(t);
+        return c instanceof Exception ? (Exception) c : new RuntimeException(c);
+    }
+
+    /**
+     * Starts {@code task.apply(0..count-1)} with at most {@code maxInFlight} unfinished at a time;
+     * the next one starts when one completes. Results keep index order. The first failure fails
+     * the whole result and no further tasks are started (running ones finish on their own).
+     */
+    static <T> CompletableFuture<List<T>> bounded(int count, int maxInFlight, IntFunction<CompletableFuture<T>> task) {
+        CompletableFuture<List<T>> all = new CompletableFuture<>();
+        if (count == 0) {
+            all.complete(List.of());
+            return all;
+        }
+
+        Object[] out = new Object[count];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        Runnable[] launch = new Runnable[1];
+        launch[0] = () -> {
+            int i = next.getAndIncrement();
+            if (i >= count || all.isDone()) return;
+
+            CompletableFuture<T> f;
+            try {
+                f = task.apply(i);
+            } catch (Throwable t) {
+                all.completeExceptionally(t);
+                return;
+            }
+            // async continuation: tasks that finish immediately must not grow the stack
+            f.whenCompleteAsync((v, err) -> {
+                if (err != null) {
+                    all.completeExceptionally(cause(err));
+                    return;
+                }
+                out[i] = v;
+                if (done.incrementAndGet() == count) {
+                    @SuppressWarnings("unchecked")
+                    List<T> list = (List<T>) Arrays.asList(out);
+                    all.complete(list);
+                } else {
+                    launch[0].run();
+                }
+            }, BLOCKING);
+        };
+        // a cancelled or failed batch stops launching (all.isDone() above)
+        for (int k = Math.min(Math.max(1, maxInFlight), count); k > 0; k--) launch[0].run();
+        return all;
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.routing;
+
+import org.example.model.Location;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level geocode cache: an in-memory LRU in front of a persistent {@link GeocodeStore}.
+ * Keys are normalized addresses, so "ул. Ленина,  5" and "УЛ. ЛЕНИНА, 5" share an entry.
+ * Entries older than the TTL are reported as misses so the caller refreshes them.
+ */
+public final class GeocodeCache implements Closeable {
+
+    private static final class Cached {
+        final Location location;
+        final long storedAtMillis;
+
+        Cached(Location location, long storedAtMillis) {
+            this.location = location;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+
+    private final GeocodeStore store;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Cached> memory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private GeocodeCache(GeocodeStore store, int memoryEntries, int maxEntries, Duration ttl) {
+        this.store = store;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+
+        int memCap = Math.max(1, memoryEntries);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > memCap;
+            }
+        };
+    }
+
+    /**
+     * @param file          cache file, created if missing
+     * @param memoryEntries size of the in-memory LRU
+     * @param maxEntries    max entries kept on disk; the oldest are evicted beyond that
+     * @param ttl           how long an entry is trusted before it is geocoded again
+     */
+    public static GeocodeCache open(Path file, int memoryEntries, int maxEntries, Duration ttl) throws IOException {
+        return new GeocodeCache(GeocodeStore.open(file), memoryEntries, maxEntries, ttl);
+    }
+
+    /** @return cached location or null if absent or expired */
+    public synchronized Location get(String address) {
+        String key = normalize(address);
+        long now = System.currentTimeMillis();
+
+        Cached c = memory.get(key);
+        if (c == null) {
+            GeocodeStore.Entry e = store.get(key);
+            if (e != null) {
+                c = new Cached(new Location(e.label, e.lon, e.lat), e.storedAtMillis);
+                memory.put(key, c);
+            }
+        }
+
+        if (c == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (now - c.storedAtMillis > ttlMillis) {
+            expired.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return c.location;
+    }
+
+    public synchronized void put(String address, Location location) throws IOException {
+        String key = normalize(address);
+        long now = System.currentTimeMillis();
+
+        memory.put(key, new Cached(location, now));
+        store.put(key, new GeocodeStore.Entry(location.address(), location.lon(), location.lat(), now));
+
+        if (store.size() > maxEntries) {
+            // evict down to 90% so that we do not rewrite the file on every insert
+            evictions.addAndGet(store.compact(maxEntries - maxEntries / 10));
+            memory.keySet().removeIf(k -> !store.contains(k));
+        } else if (store.isFragmented()) {
+            store.compact(maxEntries);
+        }
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+    public long expired() { return expired.get(); }
+    public long evictions() { return evictions.get(); }
+    public synchronized int size() { return store.size(); }
+
+    @Override
+    public synchronized void close() throws IOException {
+        store.close();
+    }
+
+    /** Lower-cases, folds "ё" and collapses whitespace and spacing around punctuation. */
+    public static String normalize(String address) {
+        String s = address == null ? "" : address.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+        s = s.replaceAll("\\s+", " ");
+        s = s.replaceAll("\\s*([,.;])\\s*", "$1 ");
+        return s.trim();
+    }
+}
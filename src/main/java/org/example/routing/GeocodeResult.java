@@ -0,0 +1,32 @@
+package org.example.routing;
+
+import org.example.model.Location;
+
+/**
+ * Outcome of geocoding a single address in a batch: either a location or the error
+ * that prevented it. Lets a batch report every bad address instead of failing on the first.
+ */
+public final class GeocodeResult {
+    private final String address;
+    private final Location location;
+    private final Exception error;
+
+    private GeocodeResult(String address, Location location, Exception error) {
+        this.address = address;
+        this.location = location;
+        this.error = error;
+    }
+
+    public static GeocodeResult ok(String address, Location location) {
+        return new GeocodeResult(address, location, null);
+    }
+
+    public static GeocodeResult failed(String address, Exception error) {
+        return new GeocodeResult(address, null, error);
+    }
+
+    public String address() { return address; }
+    public Location location() { return location; }
+    public Exception error() { return error; }
+    public boolean isOk() { return error == null; }
+}
@@ -0,0 +1,228 @@
+package org.example.routing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, memory-mapped file of geocoded addresses.
+ *
+ * Layout: header [int magic][int version][int end] followed by records
+ * [int keyLen][key utf8][int labelLen][label utf8][double lon][double lat][long storedAtMillis].
+ * A later record for the same key supersedes the earlier one; superseded and evicted
+ * records are dropped by {@link #compact}.
+ */
+final class GeocodeStore implements Closeable {
+
+    static final class Entry {
+        final String label;
+        final double lon;
+        final double lat;
+        final long storedAtMillis;
+
+        Entry(String label, double lon, double lat, long storedAtMillis) {
+            this.label = label;
+            this.lon = lon;
+            this.lat = lat;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+
+    private static final int MAGIC = 0x47454F43; // "GEOC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int END_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 256 * 1024;
+    private static final int MAX_STRING_BYTES = 64 * 1024;
+
+    private final FileChannel ch;
+    private MappedByteBuffer buf;
+
+    private final Map<String, Integer> index = new HashMap<>(); // key -> record offset
+    private int end;
+    private int deadBytes;
+
+    private GeocodeStore(FileChannel ch) {
+        this.ch = ch;
+    }
+
+    static GeocodeStore open(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+
+        FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GeocodeStore s = new GeocodeStore(ch);
+        try {
+            s.load();
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+        return s;
+    }
+
+    private void load() throws IOException {
+        long size = ch.size();
+        buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+
+        if (size < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            reset();
+            return;
+        }
+
+        int stored = buf.getInt(END_OFFSET);
+        int limit = (stored < HEADER_BYTES || stored > size) ? (int) Math.min(size, Integer.MAX_VALUE) : stored;
+
+        int pos = HEADER_BYTES;
+        while (pos < limit) {
+            int next = recordEnd(pos, limit);
+            if (next < 0) break; // truncated or garbage tail: keep what is valid
+            String key = readString(pos);
+            Integer prev = index.put(key, pos);
+            if (prev != null) deadBytes += recordEnd(prev, limit) - prev;
+            pos = next;
+        }
+        setEnd(pos);
+    }
+
+    private void reset() {
+        index.clear();
+        deadBytes = 0;
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        setEnd(HEADER_BYTES);
+    }
+
+    synchronized Entry get(String key) {
+        Integer off = index.get(key);
+        return off == null ? null : readEntry(off);
+    }
+
+    synchronized void put(String key, Entry e) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] l = e.label.getBytes(StandardCharsets.UTF_8);
+        if (k.length > MAX_STRING_BYTES || l.length > MAX_STRING_BYTES) return;
+
+        int len = 4 + k.length + 4 + l.length + 8 + 8 + 8;
+        ensureCapacity(end + len);
+
+        int pos = end;
+        buf.putInt(pos, k.length);
+        buf.put(pos + 4, k);
+        int p = pos + 4 + k.length;
+        buf.putInt(p, l.length);
+        buf.put(p + 4, l);
+        p += 4 + l.length;
+        buf.putDouble(p, e.lon);
+        buf.putDouble(p + 8, e.lat);
+        buf.putLong(p + 16, e.storedAtMillis);
+
+        Integer prev = index.put(key, pos);
+        if (prev != null) deadBytes += recordEnd(prev, end) - prev;
+        setEnd(pos + len);
+    }
+
+    synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Rewrites the file in place keeping at most {@code maxEntries} newest records.
+     * @return number of evicted entries
+     */
+    synchronized int compact(int maxEntries) {
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(index.size());
+        for (Map.Entry<String, Integer> ie : index.entrySet()) {
+            live.add(Map.entry(ie.getKey(), readEntry(ie.getValue())));
+        }
+
+        int evicted = 0;
+        if (live.size() > maxEntries) {
+            live.sort(Comparator.comparingLong((Map.Entry<String, Entry> x) -> x.getValue().storedAtMillis).reversed());
+            evicted = live.size() - maxEntries;
+            live = live.subList(0, maxEntries);
+        }
+
+        // Live data never takes more room than before, so writing from the header onwards is safe
+        // once everything has been read into memory.
+        reset();
+        for (Map.Entry<String, Entry> x : live) {
+            try {
+                put(x.getKey(), x.getValue());
+            } catch (IOException ignored) {
+                // cannot happen: capacity is already there
+            }
+        }
+        return evicted;
+    }
+
+    /** True when superseded records take more space than live ones. */
+    synchronized boolean isFragmented() {
+        return deadBytes > INITIAL_CAPACITY && deadBytes > end - HEADER_BYTES - deadBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buf.force();
+        ch.close();
+    }
+
+    // ---------- record helpers ----------
+
+    private Entry readEntry(int pos) {
+        int keyLen = buf.getInt(pos);
+        int p = pos + 4 + keyLen;
+        String label = readString(p);
+        p += 4 + buf.getInt(p);
+        return new Entry(label, buf.getDouble(p), buf.getDouble(p + 8), buf.getLong(p + 16));
+    }
+
+    private String readString(int pos) {
+        int len = buf.getInt(pos);
+        byte[] b = new byte[len];
+        buf.get(pos + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** Offset right after the record at {@code pos}, or -1 if it does not fit before {@code limit}. */
+    private int recordEnd(int pos, int limit) {
+        if (pos + 4 > limit) return -1;
+        int keyLen = buf.getInt(pos);
+        if (keyLen < 0 || keyLen > MAX_STRING_BYTES) return -1;
+        int p = pos + 4 + keyLen;
+        if (p + 4 > limit) return -1;
+        int labelLen = buf.getInt(p);
+        if (labelLen < 0 || labelLen > MAX_STRING_BYTES) return -1;
+        p += 4 + labelLen + 24;
+        return p > limit ? -1 : p;
+    }
+
+    private void setEnd(int newEnd) {
+        end = newEnd;
+        buf.putInt(END_OFFSET, newEnd);
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (needed <= buf.capacity()) return;
+        long cap = buf.capacity();
+        while (cap < needed) cap *= 2;
+        if (cap > Integer.MAX_VALUE) throw new IOException("Geocode cache file is too large");
+        buf.force();
+        buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, cap);
+    }
+}
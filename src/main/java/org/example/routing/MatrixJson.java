@@ -0,0 +1,78 @@
+package org.example.routing;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads an ORS matrix response token by token straight into the cost matrices, without a String
+ * copy of the body or a JsonNode tree (for n = 1000 that tree alone is two million boxed nodes).
+ */
+final class MatrixJson {
+
+    private MatrixJson() {}
+
+    /**
+     * Writes response cell [a][b] to cell [rows[a]][cols[b]] of durs and dists; null (no route) and
+     * missing cells become +∞. Other fields of the response are skipped.
+     */
+    static void read(JsonParser p, int[] rows, int[] cols, CostMatrix durs, CostMatrix dists) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) throw malformed();
+
+        int durRows = -1;
+        int distRows = -1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            if (name.equals("durations")) {
+                durRows = readRows(p, rows, cols, durs);
+            } else if (name.equals("distances")) {
+                distRows = readRows(p, rows, cols, dists);
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        if (durRows < rows.length || distRows < rows.length) {
+            throw new RuntimeException("ORS Matrix: нет durations/distances в ответе");
+        }
+    }
+
+    /** @return number of rows read, -1 if the value is not an array */
+    private static int readRows(JsonParser p, int[] rows, int[] cols, CostMatrix out) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return -1;
+        }
+
+        int a = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == null) throw malformed();
+            if (a >= rows.length || t != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                a++;
+                continue;
+            }
+            int i = rows[a++];
+            int b = 0;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (t == null) throw malformed();
+                if (b < cols.length) {
+                    // ORS может вернуть null, если маршрута нет
+                    out.set(i, cols[b], t == JsonToken.VALUE_NULL ? Double.POSITIVE_INFINITY : p.getValueAsDouble());
+                    b++;
+                } else {
+                    p.skipChildren();
+                }
+            }
+            for (; b < cols.length; b++) out.set(i, cols[b], Double.POSITIVE_INFINITY);
+        }
+        return a;
+    }
+
+    private static RuntimeException malformed() {
+        return new RuntimeException("ORS Matrix: некорректный JSON в ответе");
+    }
+}
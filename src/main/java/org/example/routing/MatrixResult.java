@@ -1,11 +1,11 @@
 package org.example.routing;
 
 public class MatrixResult {
-    public final double[][] durationsSeconds;
-    public final double[][] distancesMeters;
+    public final CostMatrix durationsSeconds;
+    public final CostMatrix distancesMeters;
     public final boolean fromMatrixApi; // true if matrix endpoint used
 
-    public MatrixResult(double[][] durationsSeconds, double[][] distancesMeters, boolean fromMatrixApi) {
+    public MatrixResult(CostMatrix durationsSeconds, CostMatrix distancesMeters, boolean fromMatrixApi) {
         this.durationsSeconds = durationsSeconds;
         this.distancesMeters = distancesMeters;
         this.fromMatrixApi = fromMatrixApi;
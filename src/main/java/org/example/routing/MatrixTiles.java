@@ -0,0 +1,143 @@
+package org.example.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a sources × destinations matrix request into blocks that each stay under
+ * the service's per-request element limit.
+ */
+final class MatrixTiles {
+
+    /** One block of the matrix: global location indices of its rows (sources) and columns (destinations). */
+    static final class Tile {
+        final int[] rows;
+        final int[] cols;
+
+        Tile(int[] rows, int[] cols) {
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        long elements() {
+            return (long) rows.length * cols.length;
+        }
+
+        /** Halves the longer side; used when the service rejects a block as too large. */
+        List<Tile> split() {
+            if (rows.length >= cols.length) {
+                int h = rows.length / 2;
+                return List.of(new Tile(Arrays.copyOfRange(rows, 0, h), cols),
+                        new Tile(Arrays.copyOfRange(rows, h, rows.length), cols));
+            }
+            int h = cols.length / 2;
+            return List.of(new Tile(rows, Arrays.copyOfRange(cols, 0, h)),
+                    new Tile(rows, Arrays.copyOfRange(cols, h, cols.length)));
+        }
+    }
+
+    private MatrixTiles() {}
+
+    static int[] range(int n) {
+        int[] r = new int[n];
+        for (int i = 0; i < n; i++) r[i] = i;
+        return r;
+    }
+
+    /**
+     * Picks the block shape that covers rows × cols with the fewest requests of at most
+     * {@code maxElements} cells each, then evens out block sizes.
+     */
+    static List<Tile> plan(int[] rows, int[] cols, int maxElements) {
+        int nr = rows.length;
+        int nc = cols.length;
+        if (nr == 0 || nc == 0) return List.of();
+        if ((long) nr * nc <= maxElements) return List.of(new Tile(rows, cols));
+
+        int bestR = 1;
+        int bestC = 1;
+        long bestCount = Long.MAX_VALUE;
+        for (int r = 1; r <= Math.min(nr, maxElements); r++) {
+            int c = Math.min(nc, maxElements / r);
+            if (c == 0) break;
+            long count = (long) ceilDiv(nr, r) * ceilDiv(nc, c);
+            if (count < bestCount) {
+                bestCount = count;
+                bestR = r;
+                bestC = c;
+            }
+        }
+
+        // same number of blocks, but without a thin leftover strip at the end
+        int tileR = ceilDiv(nr, ceilDiv(nr, bestR));
+        int tileC = ceilDiv(nc, ceilDiv(nc, bestC));
+
+        List<Tile> tiles = new ArrayList<>((int) bestCount);
+        for (int r0 = 0; r0 < nr; r0 += tileR) {
+            int[] tr = Arrays.copyOfRange(rows, r0, Math.min(nr, r0 + tileR));
+            for (int c0 = 0; c0 < nc; c0 += tileC) {
+                tiles.add(new Tile(tr, Arrays.copyOfRange(cols, c0, Math.min(nc, c0 + tileC))));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Plans requests for the cells not yet {@code known} (e.g. filled from a cache).
+     * Picks a small set F of locations covering every missing cell (greedy vertex cover)
+     * and fetches F × all plus (all \ F) × F, so one new stop costs one row and one column.
+     * Falls back to the full matrix when that would not save much.
+     */
+    static List<Tile> planMissing(boolean[][] known, int maxElements) {
+        int n = known.length;
+        int[] deg = new int[n]; // uncovered missing cells in row i and column i
+        boolean any = false;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (known[i][j]) continue;
+                deg[i]++;
+                deg[j]++;
+                any = true;
+            }
+        }
+        if (!any) return List.of();
+
+        boolean[] inF = new boolean[n];
+        int f = 0;
+        while (true) {
+            int v = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inF[i] && deg[i] > 0 && (v < 0 || deg[i] > deg[v])) v = i;
+            }
+            if (v < 0) break;
+
+            inF[v] = true;
+            f++;
+            if ((long) f * (2L * n - f) >= 0.9 * n * n) {
+                int[] all = range(n);
+                return plan(all, all, maxElements);
+            }
+            for (int j = 0; j < n; j++) {
+                if (inF[j]) continue;
+                if (!known[v][j]) deg[j]--;
+                if (!known[j][v]) deg[j]--;
+            }
+        }
+
+        int[] fIdx = new int[f];
+        int[] rest = new int[n - f];
+        for (int i = 0, a = 0, b = 0; i < n; i++) {
+            if (inF[i]) fIdx[a++] = i;
+            else rest[b++] = i;
+        }
+
+        List<Tile> tiles = new ArrayList<>(plan(fIdx, range(n), maxElements));
+        tiles.addAll(plan(rest, fIdx, maxElements));
+        return tiles;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.routing;
+
+import org.example.config.AppConfig;
+import org.example.model.Location;
+import org.example.routing.graph.RoadGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Matrices and route geometry from a local {@link RoadGraph} (contraction hierarchies over an OSM
+ * extract) instead of ORS: no quota, no round trips, a 500 × 500 matrix in milliseconds. Each
+ * location is snapped to the nearest road node; the stretch from the address to that node is not
+ * counted. Geocoding is passed to the wrapped provider.
+ */
+public class OfflineRoutingProvider implements RoutingProvider {
+
+    private final RoutingProvider geocoder;
+    private final RoadGraph graph;
+    private final double maxSnapMeters;
+    private final boolean float32;
+
+    /**
+     * @param geocoder      answers geocode calls (usually the real, cached provider)
+     * @param maxSnapMeters a location farther than this from any road of the graph is an error
+     * @param float32       float cells instead of double (matrix.storage)
+     */
+    public OfflineRoutingProvider(RoutingProvider geocoder, RoadGraph graph, double maxSnapMeters, boolean float32) {
+        this.geocoder = geocoder;
+        this.graph = graph;
+        this.maxSnapMeters = maxSnapMeters;
+        this.float32 = float32;
+    }
+
+    public OfflineRoutingProvider(RoutingProvider geocoder, RoadGraph graph, AppConfig cfg) {
+        this(geocoder, graph, cfg.offlineMaxSnapMeters(), cfg.matrixFloat32());
+    }
+
+    @Override
+    public Location geocode(String address) throws Exception {
+        return geocoder.geocode(address);
+    }
+
+    @Override
+    public List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+        return geocoder.geocodeBatch(addresses);
+    }
+
+    @Override
+    public CompletableFuture<Location> geocodeAsync(String address) {
+        return geocoder.geocodeAsync(address);
+    }
+
+    @Override
+    public CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+        return geocoder.geocodeBatchAsync(addresses);
+    }
+
+    @Override
+    public MatrixResult buildMatrix(List<Location> locations) {
+        int n = locations.size();
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) nodes[i] = snap(locations.get(i));
+
+        CostMatrix durs = CostMatrix.dense(n, float32);
+        CostMatrix dists = CostMatrix.dense(n, float32);
+        graph.matrix(nodes, durs, dists);
+        return new MatrixResult(durs, dists, false);
+    }
+
+    /** Computed on the calling thread: it takes milliseconds, less than a thread hop is worth. */
+    @Override
+    public CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
+        try {
+            return CompletableFuture.completedFuture(buildMatrix(locations));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Road geometry leg by leg; a leg the graph cannot route is drawn as a straight line. */
+    @Override
+    public List<double[]> routeGeometry(List<Location> stops) {
+        List<double[]> out = new ArrayList<>();
+        int prev = -1;
+        for (Location l : stops) {
+            int node = snap(l);
+            List<double[]> leg = prev < 0 ? null : graph.path(prev, node);
+            if (leg != null) out.addAll(leg);
+            out.add(new double[]{l.lon(), l.lat()});
+            prev = node;
+        }
+        return out;
+    }
+
+    private int snap(Location l) {
+        int node = graph.nearestNode(l.lat(), l.lon(), maxSnapMeters);
+        if (node < 0) {
+            throw new RuntimeException(String.format(Locale.ROOT,
+                    "Адрес дальше %.0f м от дорог офлайн-графа: %s", maxSnapMeters, l.address()));
+        }
+        return node;
+    }
+}
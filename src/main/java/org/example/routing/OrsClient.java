@@ -2,36 +2,53 @@ package org.example.routing;
 
 import org.example.config.AppConfig;
 import org.example.model.Location;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import okhttp3.*;
 
-import java.time.Duration;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class OrsClient implements RoutingProvider {
 
-    private final OkHttpClient http = new OkHttpClient.Builder()
-            .callTimeout(Duration.ofSeconds(30))
-            .connectTimeout(Duration.ofSeconds(15))
-            .readTimeout(Duration.ofSeconds(30))
-            .build();
+    private final OrsTransport transport;
 
     private final ObjectMapper om = new ObjectMapper();
     private final AppConfig cfg;
+    private final BatchGeocoder batchGeocoder;
+    private final PairwiseCostCache costCache; // may be null
 
     public OrsClient(AppConfig cfg) {
+        this(cfg, null);
+    }
+
+    /**
+     * @param costCache matrix cells from earlier calls; when given, buildMatrix only fetches
+     *                  the cells it does not already have. Can be shared between clients.
+     */
+    public OrsClient(AppConfig cfg, PairwiseCostCache costCache) {
         this.cfg = cfg;
+        this.transport = OrsTransport.shared(cfg);
+        this.batchGeocoder = new BatchGeocoder(cfg.geocodeConcurrency(), cfg.geocodeRequestsPerSecond());
+        this.costCache = costCache;
     }
 
     // ---------- GEOCODING ----------
     @Override
     public Location geocode(String address) throws Exception {
+        return Futures.await(geocodeAsync(address));
+    }
+
+    @Override
+    public CompletableFuture<Location> geocodeAsync(String address) {
         HttpUrl base = Objects.requireNonNull(
                 HttpUrl.parse("https://api.openrouteservice.org/geocode/search"),
                 "Bad ORS geocode URL"
@@ -46,13 +63,12 @@ public class OrsClient implements RoutingProvider {
 
         Request req = new Request.Builder().url(url).get().build();
 
-        try (Response r = http.newCall(req).execute()) {
-            String body = (r.body() != null) ? r.body().string() : "";
+        return send(OrsTransport.Endpoint.GEOCODE, req).thenApply(r -> {
             if (!r.isSuccessful()) {
-                throw new RuntimeException("ORS Geocode error: HTTP " + r.code() + " body=" + body);
+                throw new RuntimeException("ORS Geocode error: HTTP " + r.code + " body=" + r.body);
             }
 
-            JsonNode root = om.readTree(body);
+            JsonNode root = readTree(r.body);
             JsonNode features = root.path("features");
             if (!features.isArray() || features.size() == 0) {
                 throw new RuntimeException("Не найдено по адресу: " + address);
@@ -69,30 +85,102 @@ public class OrsClient implements RoutingProvider {
             String label = f.path("properties").path("label").asText(address);
 
             return new Location(label, lon, lat);
-        }
+        });
+    }
+
+    @Override
+    public List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+        return Futures.await(geocodeBatchAsync(addresses));
+    }
+
+    @Override
+    public CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+        return batchGeocoder.geocodeAllAsync(addresses, this::geocodeAsync);
     }
 
     // ---------- MATRIX ----------
     @Override
     public MatrixResult buildMatrix(List<Location> locations) throws Exception {
+        return Futures.await(buildMatrixAsync(locations));
+    }
+
+    @Override
+    public CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
         int n = locations.size();
         if (n < 2) {
-            double[][] d = new double[n][n];
-            return new MatrixResult(d, d, true);
+            CostMatrix d = CostMatrix.dense(n, false);
+            return CompletableFuture.completedFuture(new MatrixResult(d, d, true));
+        }
+
+        CostMatrix durs = CostMatrix.dense(n, cfg.matrixFloat32());
+        CostMatrix dists = CostMatrix.dense(n, cfg.matrixFloat32());
+
+        if (costCache == null) {
+            int[] all = MatrixTiles.range(n);
+            return fetchTiles(locations, MatrixTiles.plan(all, all, cfg.matrixMaxElements()), durs, dists)
+                    .thenApply(v -> new MatrixResult(durs, dists, true));
         }
 
+        // Take what we already know, fetch only the missing rows/columns
+        boolean[][] known = new boolean[n][n];
+        costCache.lookup(cfg.orsProfile(), locations, durs, dists, known);
+
+        List<MatrixTiles.Tile> tiles = MatrixTiles.planMissing(known, cfg.matrixMaxElements());
+        return fetchTiles(locations, tiles, durs, dists).thenApply(v -> {
+            for (MatrixTiles.Tile t : tiles) {
+                costCache.store(cfg.orsProfile(), locations, t.rows, t.cols, durs, dists);
+            }
+            return new MatrixResult(durs, dists, true);
+        });
+    }
+
+    /**
+     * Fetches matrix blocks concurrently (at most ors.matrix.concurrency in flight)
+     * and writes each block into its cells of durs/dists.
+     */
+    private CompletableFuture<?> fetchTiles(List<Location> locations, List<MatrixTiles.Tile> tiles,
+                                            CostMatrix durs, CostMatrix dists) {
+        return Futures.bounded(tiles.size(), cfg.matrixConcurrency(),
+                i -> fetchTile(locations, tiles.get(i), durs, dists));
+    }
+
+    private CompletableFuture<Void> fetchTile(List<Location> locations, MatrixTiles.Tile tile,
+                                              CostMatrix durs, CostMatrix dists) {
+        return requestTile(locations, tile, durs, dists).exceptionallyCompose(err -> {
+            Throwable c = Futures.cause(err);
+            if (!(c instanceof TileTooLargeException)) return CompletableFuture.failedFuture(c);
+            // the service limit is lower than configured: shrink the block and try again
+            if (tile.elements() <= 1) return CompletableFuture.failedFuture(new RuntimeException(c.getMessage(), c));
+            CompletableFuture<Void> halves = CompletableFuture.completedFuture(null);
+            for (MatrixTiles.Tile half : tile.split()) {
+                halves = halves.thenCompose(v -> fetchTile(locations, half, durs, dists));
+            }
+            return halves;
+        });
+    }
+
+    private CompletableFuture<Void> requestTile(List<Location> locations, MatrixTiles.Tile tile,
+                                                CostMatrix durs, CostMatrix dists) {
+        int[] rows = tile.rows;
+        int[] cols = tile.cols;
+        boolean square = Arrays.equals(rows, cols);
+
         // ORS Matrix endpoint:
         // POST https://api.openrouteservice.org/v2/matrix/{profile}
-        // Body: { "locations":[[lon,lat],...], "metrics":["duration","distance"] }
+        // Body: { "locations":[[lon,lat],...], "sources":[...], "destinations":[...],
+        //         "metrics":["duration","distance"] }
         ObjectNode body = om.createObjectNode();
 
-        // locations
+        // locations: block rows first, then block columns (the same list once for a diagonal block)
         ArrayNode locs = body.putArray("locations");
-        for (Location l : locations) {
-            ArrayNode coord = om.createArrayNode();
-            coord.add(l.lon());
-            coord.add(l.lat());
-            locs.add(coord);
+        for (int i : rows) addCoord(locs, locations.get(i));
+        if (!square) {
+            for (int j : cols) addCoord(locs, locations.get(j));
+
+            ArrayNode sources = body.putArray("sources");
+            for (int i = 0; i < rows.length; i++) sources.add(i);
+            ArrayNode destinations = body.putArray("destinations");
+            for (int j = 0; j < cols.length; j++) destinations.add(rows.length + j);
         }
 
         // metrics
@@ -117,37 +205,66 @@ public class OrsClient implements RoutingProvider {
                 .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
                 .build();
 
-        try (Response r = http.newCall(req).execute()) {
-            String respBody = (r.body() != null) ? r.body().string() : "";
+        // the body is parsed as it arrives, straight into the matrices
+        return transport.send(OrsTransport.Endpoint.MATRIX, req, r -> {
             if (!r.isSuccessful()) {
+                String respBody = r.body() != null ? r.body().string() : "";
+                if (r.code() == 413 || (r.code() == 400 && respBody.toLowerCase(Locale.ROOT).contains("maximum"))) {
+                    throw new TileTooLargeException("ORS Matrix error: HTTP " + r.code() + " body=" + respBody);
+                }
                 throw new RuntimeException("ORS Matrix error: HTTP " + r.code() + " body=" + respBody);
             }
+            if (r.body() == null) throw new RuntimeException("ORS Matrix: пустой ответ");
 
-            JsonNode root = om.readTree(respBody);
-            JsonNode dur = root.path("durations");
-            JsonNode dist = root.path("distances");
-
-            if (!dur.isArray() || !dist.isArray()) {
-                throw new RuntimeException("ORS Matrix: нет durations/distances в ответе");
+            try (JsonParser p = om.getFactory().createParser(r.body().byteStream())) {
+                MatrixJson.read(p, rows, cols, durs, dists);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("ORS Matrix: некорректный JSON в ответе: " + e.getOriginalMessage(), e);
             }
+            return null;
+        });
+    }
 
-            double[][] durs = new double[n][n];
-            double[][] dists = new double[n][n];
+    // ---------- HTTP ----------
 
-            for (int i = 0; i < n; i++) {
-                JsonNode rowD = dur.get(i);
-                JsonNode rowS = dist.get(i);
-                for (int j = 0; j < n; j++) {
-                    // ORS может вернуть null, если маршрута нет
-                    JsonNode vd = rowD.get(j);
-                    JsonNode vs = rowS.get(j);
+    /** A finished response, read in full on the dispatcher thread. */
+    private static final class Reply {
+        final int code;
+        final String body;
 
-                    durs[i][j] = (vd == null || vd.isNull()) ? Double.POSITIVE_INFINITY : vd.asDouble();
-                    dists[i][j] = (vs == null || vs.isNull()) ? Double.POSITIVE_INFINITY : vs.asDouble();
-                }
-            }
+        Reply(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
 
-            return new MatrixResult(durs, dists, true);
+        boolean isSuccessful() { return code >= 200 && code < 300; }
+    }
+
+    /** Text of the whole response. */
+    private CompletableFuture<Reply> send(OrsTransport.Endpoint endpoint, Request req) {
+        return transport.send(endpoint, req, r -> new Reply(r.code(), r.body() != null ? r.body().string() : ""));
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return om.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("ORS: некорректный JSON в ответе: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static void addCoord(ArrayNode arr, Location l) {
+        ArrayNode coord = arr.addArray();
+        coord.add(l.lon());
+        coord.add(l.lat());
+    }
+
+    /** The service refused a matrix block because it exceeds a per-request limit. */
+    private static final class TileTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TileTooLargeException(String message) {
+            super(message);
         }
     }
-}
\ No newline at end of file
+}
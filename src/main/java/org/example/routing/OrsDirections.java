@@ -0,0 +1,249 @@
+package org.example.routing;
+
+import org.example.config.AppConfig;
+import org.example.model.Location;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Road geometry of an ordered route from ORS directions (GeoJSON). A route longer than
+ * ors.directions.maxWaypoints is split into chunks that share their end stops; the chunks are
+ * fetched in parallel (ors.directions.concurrency, within the directions quota) and their lines
+ * joined at the shared stops. A full-day route then stays under the plan's waypoint limit, and
+ * several short requests answer sooner than one long one.
+ */
+public final class OrsDirections {
+
+    /** The route's line and its legs; leg k runs from stop k to stop k + 1. */
+    public static final class Route {
+        private final List<double[]> geometry;
+        private final double[] legSeconds;
+        private final double[] legMeters;
+
+        Route(List<double[]> geometry, double[] legSeconds, double[] legMeters) {
+            this.geometry = geometry;
+            this.legSeconds = legSeconds;
+            this.legMeters = legMeters;
+        }
+
+        /** [lon, lat] points of the whole route; empty if ORS returned no line. */
+        public List<double[]> geometry() { return geometry; }
+        /** Travel time per leg; NaN where ORS gave no segment. */
+        public double[] legSeconds() { return legSeconds; }
+        /** Road distance per leg; NaN where ORS gave no segment. */
+        public double[] legMeters() { return legMeters; }
+    }
+
+    /** One request's answer: its line and its segments in stop order. */
+    private static final class Chunk {
+        final List<double[]> line;
+        final double[] seconds;
+        final double[] meters;
+
+        Chunk(List<double[]> line, double[] seconds, double[] meters) {
+            this.line = line;
+            this.seconds = seconds;
+            this.meters = meters;
+        }
+    }
+
+    private static final ObjectMapper om = new ObjectMapper();
+
+    private final AppConfig cfg;
+    private final OrsTransport transport;
+    private final OkHttpClient http;
+
+    public OrsDirections(AppConfig cfg) {
+        this.cfg = cfg;
+        this.transport = OrsTransport.shared(cfg);
+        // a chunk of many stops takes longer than a matrix block; the connection pool stays shared
+        this.http = transport.client().newBuilder()
+                .callTimeout(Duration.ofSeconds(45))
+                .build();
+    }
+
+    public Route fetch(List<Location> orderedStops) throws Exception {
+        return Futures.await(fetchAsync(orderedStops));
+    }
+
+    public CompletableFuture<Route> fetchAsync(List<Location> orderedStops) {
+        if (orderedStops == null || orderedStops.size() < 2) {
+            return CompletableFuture.completedFuture(new Route(List.of(), new double[0], new double[0]));
+        }
+        List<int[]> chunks = chunks(orderedStops.size(), cfg.directionsMaxWaypoints());
+        return Futures.bounded(chunks.size(), cfg.directionsConcurrency(), i -> {
+            int[] c = chunks.get(i);
+            return fetchChunk(orderedStops.subList(c[0], c[1] + 1));
+        }).thenApply(parts -> stitch(orderedStops.size(), chunks, parts));
+    }
+
+    /**
+     * [first, last] stop indexes of each request: at most {@code maxWaypoints} stops, consecutive
+     * chunks sharing one stop, and legs spread evenly so no request is much slower than the rest.
+     */
+    static List<int[]> chunks(int stops, int maxWaypoints) {
+        int legs = stops - 1;
+        int count = (legs + maxWaypoints - 2) / (maxWaypoints - 1);
+        int per = (legs + count - 1) / count;
+        List<int[]> out = new ArrayList<>(count);
+        for (int from = 0; from < legs; from += per) {
+            out.add(new int[]{from, Math.min(legs, from + per)});
+        }
+        return out;
+    }
+
+    /**
+     * Joins the chunks' lines, dropping a chunk's first vertex when it repeats the previous
+     * chunk's last one (both are the shared stop snapped onto the road).
+     */
+    private static Route stitch(int stops, List<int[]> chunks, List<Chunk> parts) {
+        double[] seconds = new double[stops - 1];
+        double[] meters = new double[stops - 1];
+        Arrays.fill(seconds, Double.NaN);
+        Arrays.fill(meters, Double.NaN);
+
+        int points = 0;
+        for (Chunk c : parts) points += c.line.size();
+        List<double[]> line = new ArrayList<>(points);
+        boolean complete = true;
+        for (int i = 0; i < parts.size(); i++) {
+            Chunk c = parts.get(i);
+            int from = chunks.get(i)[0];
+            int legs = chunks.get(i)[1] - from;
+            if (c.seconds.length == legs) {
+                System.arraycopy(c.seconds, 0, seconds, from, legs);
+                System.arraycopy(c.meters, 0, meters, from, legs);
+            }
+
+            if (c.line.size() < 2) complete = false;
+            int skip = !line.isEmpty() && !c.line.isEmpty()
+                    && Arrays.equals(line.get(line.size() - 1), c.line.get(0)) ? 1 : 0;
+            line.addAll(c.line.subList(skip, c.line.size()));
+        }
+        // a line with a gap would cut straight through the missing part: no line, the caller draws its own
+        return new Route(complete ? line : List.of(), seconds, meters);
+    }
+
+    private CompletableFuture<Chunk> fetchChunk(List<Location> stops) {
+        ObjectNode body = om.createObjectNode();
+        ArrayNode coords = body.putArray("coordinates");
+        for (Location l : stops) coords.addArray().add(l.lon()).add(l.lat());
+
+        Request req = new Request.Builder()
+                .url("https://api.openrouteservice.org/v2/directions/" + cfg.orsProfile() + "/geojson")
+                .addHeader("Authorization", cfg.orsApiKey())
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
+                .build();
+
+        return transport.send(OrsTransport.Endpoint.DIRECTIONS, req, r -> {
+            if (!r.isSuccessful()) {
+                String text = r.body() != null ? r.body().string() : "";
+                throw new RuntimeException("ORS Directions error: HTTP " + r.code() + " body=" + text);
+            }
+            if (r.body() == null) return new Chunk(List.of(), new double[0], new double[0]);
+
+            // streamed: a long route has tens of thousands of points, no need for a tree of them
+            try (JsonParser p = om.getFactory().createParser(r.body().byteStream())) {
+                return firstFeature(p);
+            }
+        }, http);
+    }
+
+    /** features[0] of a GeoJSON FeatureCollection; other fields are skipped. */
+    private static Chunk firstFeature(JsonParser p) throws IOException {
+        Chunk out = new Chunk(List.of(), new double[0], new double[0]);
+        if (p.nextToken() != JsonToken.START_OBJECT) return out;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if (name.equals("features") && t == JsonToken.START_ARRAY) {
+                if (p.nextToken() == JsonToken.START_OBJECT) out = feature(p);
+                // rest of the features array (the first feature's object is already consumed)
+                while (p.currentToken() != JsonToken.END_ARRAY) {
+                    if (p.nextToken() == null) throw new IOException("ORS Directions: обрыв ответа");
+                    p.skipChildren();
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return out;
+    }
+
+    /** Reads one Feature object up to its END_OBJECT: geometry.coordinates and properties.segments. */
+    private static Chunk feature(JsonParser p) throws IOException {
+        List<double[]> line = List.of();
+        List<double[]> segments = List.of();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if (t != JsonToken.START_OBJECT || !(name.equals("geometry") || name.equals("properties"))) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() != JsonToken.START_ARRAY) p.skipChildren();
+                else if (name.equals("geometry") && field.equals("coordinates")) line = points(p);
+                else if (name.equals("properties") && field.equals("segments")) segments = segments(p);
+                else p.skipChildren();
+            }
+        }
+        double[] seconds = new double[segments.size()];
+        double[] meters = new double[segments.size()];
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] = segments.get(i)[0];
+            meters[i] = segments.get(i)[1];
+        }
+        return new Chunk(line.size() < 2 ? List.of() : line, seconds, meters);
+    }
+
+    /** [[lon, lat(, elevation)], ...] */
+    private static List<double[]> points(JsonParser p) throws IOException {
+        List<double[]> out = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_ARRAY) {
+            double[] pt = new double[2];
+            int k = 0;
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (t == null) throw new IOException("ORS Directions: обрыв ответа");
+                if (k < 2) pt[k] = p.getValueAsDouble();
+                k++;
+            }
+            if (k >= 2) out.add(pt);
+        }
+        return out;
+    }
+
+    /** {duration, distance} of each segment (one per leg); their steps are skipped. */
+    private static List<double[]> segments(JsonParser p) throws IOException {
+        List<double[]> out = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            double[] seg = {Double.NaN, Double.NaN};
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                if (name.equals("duration")) seg[0] = p.getValueAsDouble(Double.NaN);
+                else if (name.equals("distance")) seg[1] = p.getValueAsDouble(Double.NaN);
+                else p.skipChildren();
+            }
+            out.add(seg);
+        }
+        return out;
+    }
+}
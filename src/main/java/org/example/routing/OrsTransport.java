@@ -0,0 +1,292 @@
+package org.example.routing;
+
+import org.example.config.AppConfig;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The one HTTP client of the application: every ORS call (geocoding, matrix, directions) goes
+ * through its connection pool and dispatcher, so TLS connections opened by one run are reused by
+ * the next. HTTP/2 is negotiated where the server offers it (many calls share one connection) and
+ * gzip responses are decompressed transparently.
+ *
+ * All calls go through {@link #send}, which schedules them against the plan's per-endpoint limits
+ * (token buckets, shared by every client), retries 429, 5xx and network errors with jittered
+ * exponential backoff (a Retry-After from the server wins and also pauses the endpoint), and
+ * counts calls and consumed credits per endpoint.
+ *
+ * Created from the first config it is asked for; later config reloads do not rebuild it.
+ */
+public final class OrsTransport {
+
+    static final String ORS_BASE = "https://api.openrouteservice.org/";
+
+    private static final long BACKOFF_BASE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long BACKOFF_MAX_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** ORS services with separate plan limits. */
+    public enum Endpoint {
+        GEOCODE("geocode"), MATRIX("matrix"), DIRECTIONS("directions");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Turns a response into a result on the dispatcher thread; the response is closed afterwards. */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(Response r) throws IOException;
+    }
+
+    /** Per-endpoint accounting. */
+    private static final class Counters {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong(); // 429 answers
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong credits = new AtomicLong();   // answered requests the plan counts
+    }
+
+    private static OrsTransport shared;
+
+    private final OkHttpClient http;
+    private final ConnectionPool pool;
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final EnumMap<Endpoint, TokenBucket> buckets = new EnumMap<>(Endpoint.class);
+    private final EnumMap<Endpoint, Counters> counters = new EnumMap<>(Endpoint.class);
+    private final int maxAttempts;
+
+    private OrsTransport(AppConfig cfg) {
+        AtomicInteger seq = new AtomicInteger();
+        // same as OkHttp's own dispatcher executor, but with daemon threads: the app may exit any time
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "ors-http-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // calls are enqueued, not executed on caller threads: the dispatcher's limits are
+        // what bounds the requests in flight (OkHttp's default is 5 per host)
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(cfg.httpMaxRequests());
+        dispatcher.setMaxRequestsPerHost(cfg.httpMaxRequests());
+
+        this.pool = new ConnectionPool(cfg.httpMaxIdleConnections(), cfg.httpKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        this.http = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(pool)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListener(new EventListener() {
+                    @Override
+                    public void callStart(Call call) {
+                        calls.incrementAndGet();
+                    }
+
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                        connectionsOpened.incrementAndGet();
+                    }
+                })
+                .callTimeout(Duration.ofSeconds(30))
+                .connectTimeout(Duration.ofSeconds(15))
+                .readTimeout(Duration.ofSeconds(30))
+                .build();
+
+        // a quarter of a minute's quota may go at once; the rest is spread evenly
+        buckets.put(Endpoint.GEOCODE, new TokenBucket(cfg.geocodeQuotaPerMinute(), cfg.geocodeQuotaPerMinute() / 4));
+        buckets.put(Endpoint.MATRIX, new TokenBucket(cfg.matrixQuotaPerMinute(), cfg.matrixQuotaPerMinute() / 4));
+        buckets.put(Endpoint.DIRECTIONS, new TokenBucket(cfg.directionsQuotaPerMinute(), cfg.directionsQuotaPerMinute() / 4));
+        for (Endpoint e : Endpoint.values()) counters.put(e, new Counters());
+        this.maxAttempts = cfg.retryMaxAttempts();
+    }
+
+    /** The application-wide transport, created on first use. */
+    public static synchronized OrsTransport shared(AppConfig cfg) {
+        if (shared == null) shared = new OrsTransport(cfg);
+        return shared;
+    }
+
+    /** Client for ORS calls. Use {@code newBuilder()} on it for other timeouts; the pool stays shared. */
+    public OkHttpClient client() { return http; }
+
+    /** {@link #send(Endpoint, Request, ResponseReader, OkHttpClient)} on the shared client. */
+    public <T> CompletableFuture<T> send(Endpoint endpoint, Request req, ResponseReader<T> reader) {
+        return send(endpoint, req, reader, http);
+    }
+
+    /**
+     * Schedules the call within the endpoint's quota and enqueues it; no thread waits for the
+     * answer. 429, 5xx and network errors are retried (ors.retry.maxAttempts in total); any other
+     * answer, success or not, goes to {@code reader}. Cancelling the future cancels the call.
+     *
+     * @param client {@link #client()} or a client derived from it
+     */
+    public <T> CompletableFuture<T> send(Endpoint endpoint, Request req, ResponseReader<T> reader, OkHttpClient client) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Call> current = new AtomicReference<>();
+        result.whenComplete((v, err) -> {
+            Call c = current.get();
+            if (result.isCancelled() && c != null) c.cancel();
+        });
+        counters.get(endpoint).calls.incrementAndGet();
+        attempt(endpoint, req, reader, client, 1, buckets.get(endpoint).reserveNanos(), result, current);
+        return result;
+    }
+
+    private <T> void attempt(Endpoint endpoint, Request req, ResponseReader<T> reader, OkHttpClient client,
+                             int attempt, long delayNanos, CompletableFuture<T> result, AtomicReference<Call> current) {
+        Runnable start = () -> {
+            if (result.isDone()) return;
+            Counters n = counters.get(endpoint);
+            n.attempts.incrementAndGet();
+            Call call = client.newCall(req);
+            current.set(call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                    if (!c.isCanceled() && attempt < maxAttempts) {
+                        retry(endpoint, req, reader, client, attempt, -1, result, current);
+                        return;
+                    }
+                    n.failed.incrementAndGet();
+                    result.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call c, Response r) {
+                    int code = r.code();
+                    if (code == 429) n.throttled.incrementAndGet();
+                    else n.credits.incrementAndGet();
+
+                    if ((code == 429 || code == 500 || code == 502 || code == 503 || code == 504) && attempt < maxAttempts) {
+                        long retryAfter = retryAfterNanos(r.header("Retry-After"));
+                        r.close();
+                        if (code == 429) {
+                            // the plan says stop: hold back every call to this endpoint, not just this one
+                            buckets.get(endpoint).closeFor(Math.max(retryAfter, backoffNanos(attempt)));
+                        }
+                        retry(endpoint, req, reader, client, attempt, retryAfter, result, current);
+                        return;
+                    }
+                    try (r) {
+                        result.complete(reader.read(r));
+                    } catch (IOException | RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+        };
+
+        if (delayNanos > 0) CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(start);
+        else start.run();
+    }
+
+    /** Next attempt after the backoff (or Retry-After, if longer) and a fresh quota token. */
+    private <T> void retry(Endpoint endpoint, Request req, ResponseReader<T> reader, OkHttpClient client,
+                           int attempt, long retryAfterNanos, CompletableFuture<T> result, AtomicReference<Call> current) {
+        long delay = Math.max(backoffNanos(attempt), retryAfterNanos);
+        delay = Math.max(delay, buckets.get(endpoint).reserveNanos());
+        attempt(endpoint, req, reader, client, attempt + 1, delay, result, current);
+    }
+
+    /** Exponential backoff with "equal jitter": half fixed, half random, so retries do not sync up. */
+    private static long backoffNanos(int attempt) {
+        long cap = Math.min(BACKOFF_MAX_NANOS, BACKOFF_BASE_NANOS << Math.min(attempt - 1, 16));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    /** Retry-After as delay-seconds or an HTTP date; -1 if absent or unreadable. */
+    static long retryAfterNanos(String header) {
+        if (header == null || header.isBlank()) return -1;
+        String v = header.trim();
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(v)));
+        } catch (NumberFormatException ignored) {
+            // not seconds, maybe a date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Opens a connection to ORS in the background (TLS handshake, HTTP/2 negotiation), so the first
+     * real request does not pay for it. Failures are ignored: the real request will report them.
+     */
+    public void warmUp() {
+        Request req = new Request.Builder().url(ORS_BASE).head().build();
+        http.newCall(req).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {}
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+    }
+
+    /** Open connections (in use or idle). */
+    public int connectionCount() { return pool.connectionCount(); }
+    public int idleConnectionCount() { return pool.idleConnectionCount(); }
+    /** Connections opened since start; far below {@link #callCount()} means reuse works. */
+    public long connectionsOpened() { return connectionsOpened.get(); }
+    public long callCount() { return calls.get(); }
+
+    /** One-line summary for status bars and logs. */
+    public String stats() {
+        Dispatcher d = http.dispatcher();
+        return String.format(Locale.ROOT,
+                "HTTP: %d запросов, %d новых соединений, открыто %d (простаивают %d), в работе %d, в очереди %d",
+                callCount(), connectionsOpened(), connectionCount(), idleConnectionCount(),
+                d.runningCallsCount(), d.queuedCallsCount()) + quotaStats();
+    }
+
+    /** Per endpoint that was used: calls, attempts, 429 answers, failures and credits consumed. */
+    public String quotaStats() {
+        StringBuilder sb = new StringBuilder();
+        for (Endpoint e : Endpoint.values()) {
+            Counters n = counters.get(e);
+            if (n.calls.get() == 0) continue;
+            sb.append(String.format(Locale.ROOT, "; %s: %d вызовов, %d попыток, 429×%d, ошибок %d, кредитов %d",
+                    e.label, n.calls.get(), n.attempts.get(), n.throttled.get(), n.failed.get(), n.credits.get()));
+        }
+        return sb.toString();
+    }
+
+    /** Requests to {@code endpoint} the plan has counted so far. */
+    public long creditsUsed(Endpoint endpoint) { return counters.get(endpoint).credits.get(); }
+}
@@ -0,0 +1,175 @@
+package org.example.routing;
+
+import org.example.model.Location;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of matrix cells keyed by (rounded origin, rounded destination, profile).
+ * Lets a matrix that differs from a previous one by a few stops be rebuilt by fetching
+ * only the new rows and columns.
+ *
+ * Cells are grouped per origin; origins are evicted least-recently-used first once the
+ * total number of cells passes {@code maxEntries}.
+ */
+public final class PairwiseCostCache {
+
+    /** Coordinates are rounded to 1e-5 degrees (about a meter). */
+    private static final double SCALE = 1e5;
+
+    private static final class OriginKey {
+        final String profile;
+        final long coord;
+
+        OriginKey(String profile, long coord) {
+            this.profile = profile;
+            this.coord = coord;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof OriginKey)) return false;
+            OriginKey k = (OriginKey) o;
+            return coord == k.coord && profile.equals(k.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(profile, coord);
+        }
+    }
+
+    /** Open-addressing map: destination coordinate key -> (duration, distance). */
+    private static final class Row {
+        private static final long EMPTY = Long.MIN_VALUE; // never produced by coordKey()
+
+        long[] keys = newKeys(8);
+        double[] durs = new double[8];
+        double[] dists = new double[8];
+        int size;
+
+        private static long[] newKeys(int cap) {
+            long[] k = new long[cap];
+            Arrays.fill(k, EMPTY);
+            return k;
+        }
+
+        int slot(long key) {
+            int mask = keys.length - 1;
+            int h = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[h] != EMPTY && keys[h] != key) h = (h + 1) & mask;
+            return h;
+        }
+
+        /** @return true if a new cell was added */
+        boolean put(long key, double dur, double dist) {
+            if ((size + 1) * 4 > keys.length * 3) grow();
+            int s = slot(key);
+            boolean added = keys[s] == EMPTY;
+            keys[s] = key;
+            durs[s] = dur;
+            dists[s] = dist;
+            if (added) size++;
+            return added;
+        }
+
+        private void grow() {
+            long[] oldK = keys;
+            double[] oldD = durs;
+            double[] oldS = dists;
+            keys = newKeys(oldK.length * 2);
+            durs = new double[oldK.length * 2];
+            dists = new double[oldK.length * 2];
+            size = 0;
+            for (int i = 0; i < oldK.length; i++) {
+                if (oldK[i] != EMPTY) put(oldK[i], oldD[i], oldS[i]);
+            }
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<OriginKey, Row> rows = new LinkedHashMap<>(64, 0.75f, true);
+    private long entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PairwiseCostCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    static long coordKey(Location l) {
+        long lon = Math.round(l.lon() * SCALE);
+        long lat = Math.round(l.lat() * SCALE);
+        return (lon << 32) | (lat & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Copies every cached cell for these locations into durs/dists and marks it in {@code known}.
+     * Diagonal cells are always known (zero).
+     * @return number of cells still missing
+     */
+    public synchronized int lookup(String profile, List<Location> locations,
+                                   CostMatrix durs, CostMatrix dists, boolean[][] known) {
+        int n = locations.size();
+        long[] keys = keys(locations);
+        int missing = 0;
+
+        for (int i = 0; i < n; i++) {
+            Row row = rows.get(new OriginKey(profile, keys[i]));
+            for (int j = 0; j < n; j++) {
+                if (i == j) {
+                    durs.set(i, j, 0.0);
+                    dists.set(i, j, 0.0);
+                    known[i][j] = true;
+                    continue;
+                }
+                int s = row == null ? -1 : row.slot(keys[j]);
+                if (s >= 0 && row.keys[s] == keys[j]) {
+                    durs.set(i, j, row.durs[s]);
+                    dists.set(i, j, row.dists[s]);
+                    known[i][j] = true;
+                } else {
+                    missing++;
+                }
+            }
+        }
+
+        hits.addAndGet((long) n * (n - 1) - missing);
+        misses.addAndGet(missing);
+        return missing;
+    }
+
+    /** Stores the cells rows × cols of freshly fetched matrices. */
+    public synchronized void store(String profile, List<Location> locations, int[] rowIdx, int[] colIdx,
+                                   CostMatrix durs, CostMatrix dists) {
+        long[] keys = keys(locations);
+        for (int i : rowIdx) {
+            Row row = rows.computeIfAbsent(new OriginKey(profile, keys[i]), k -> new Row());
+            for (int j : colIdx) {
+                if (i == j) continue;
+                if (row.put(keys[j], durs.get(i, j), dists.get(i, j))) entries++;
+            }
+        }
+
+        var it = rows.values().iterator();
+        while (entries > maxEntries && it.hasNext()) {
+            entries -= it.next().size;
+            it.remove();
+        }
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+    public synchronized long size() { return entries; }
+
+    private static long[] keys(List<Location> locations) {
+        long[] keys = new long[locations.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = coordKey(locations.get(i));
+        return keys;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.routing;
+
+/**
+ * Spaces out calls so that no more than {@code permitsPerSecond} start per second.
+ * Callers reserve the next free slot and schedule their call for it ({@link #reserveNanos()}).
+ */
+final class RateLimiter {
+    private final long intervalNanos;
+    private long nextFreeNanos;
+
+    /** @param permitsPerSecond 0 or less disables limiting */
+    RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0L;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /** Takes the next free slot without blocking. @return nanoseconds until it starts (0 = now) */
+    long reserveNanos() {
+        if (intervalNanos == 0) return 0L;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextFreeNanos);
+            nextFreeNanos = slot + intervalNanos;
+            return slot - now;
+        }
+    }
+}
@@ -2,14 +2,66 @@ package org.example.routing;
 
 import org.example.model.Location;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Geocoding and travel-cost lookups. Every call has a blocking and a {@link CompletableFuture}
+ * form; a provider implements whichever is natural and the defaults derive the other one:
+ * the async defaults run the blocking method on a background thread, so a network provider
+ * should override them (and may then implement the blocking ones with {@link Futures#await}).
+ */
 public interface RoutingProvider {
     Location geocode(String address) throws Exception;
 
+    /**
+     * Geocodes many addresses. The result list has the same order and size as the input;
+     * an address that could not be geocoded gets a failed {@link GeocodeResult} instead of
+     * aborting the batch.
+     * Default implementation calls {@link #geocode(String)} one by one; providers override
+     * it with a parallel or native batch version.
+     */
+    default List<GeocodeResult> geocodeBatch(List<String> addresses) throws Exception {
+        List<GeocodeResult> out = new ArrayList<>(addresses.size());
+        for (String a : addresses) {
+            try {
+                out.add(GeocodeResult.ok(a, geocode(a)));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                out.add(GeocodeResult.failed(a, e));
+            }
+        }
+        return out;
+    }
+
     /**
      * Returns a matrix of durations (seconds) and distances (meters).
      * matrix[i][j] means from i to j.
      */
     MatrixResult buildMatrix(List<Location> locations) throws Exception;
+
+    /**
+     * Road geometry of the route through {@code stops} in this order, as [lon, lat] points;
+     * null if the provider has no road network of its own (callers then ask ORS directions).
+     */
+    default List<double[]> routeGeometry(List<Location> stops) throws Exception {
+        return null;
+    }
+
+    /** Async {@link #geocode(String)}. */
+    default CompletableFuture<Location> geocodeAsync(String address) {
+        return Futures.call(() -> geocode(address));
+    }
+
+    /** Async {@link #geocodeBatch(List)}. */
+    default CompletableFuture<List<GeocodeResult>> geocodeBatchAsync(List<String> addresses) {
+        return Futures.call(() -> geocodeBatch(addresses));
+    }
+
+    /** Async {@link #buildMatrix(List)}. */
+    default CompletableFuture<MatrixResult> buildMatrixAsync(List<Location> locations) {
+        return Futures.call(() -> buildMatrix(locations));
+    }
 }
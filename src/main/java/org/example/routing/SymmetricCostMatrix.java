@@ -0,0 +1,39 @@
+package org.example.routing;
+
+/**
+ * Symmetric matrix keeping only the upper triangle (diagonal included), column by column,
+ * in double or float32 cells. Cell (i, j) with i <= j lives at j*(j+1)/2 + i.
+ */
+final class SymmetricCostMatrix implements CostMatrix {
+    private final int n;
+    private final double[] d; // one of d / f is null
+    private final float[] f;
+
+    SymmetricCostMatrix(int n, boolean float32) {
+        this.n = n;
+        int cells = (int) ((long) n * (n + 1) / 2);
+        this.d = float32 ? null : new double[cells];
+        this.f = float32 ? new float[cells] : null;
+    }
+
+    @Override public int size() { return n; }
+
+    @Override public boolean isSymmetric() { return true; }
+
+    @Override
+    public double get(int i, int j) {
+        int k = index(i, j);
+        return d != null ? d[k] : f[k];
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        int k = index(i, j);
+        if (d != null) d[k] = value;
+        else f[k] = (float) value;
+    }
+
+    private static int index(int i, int j) {
+        return i <= j ? (int) ((long) j * (j + 1) / 2) + i : (int) ((long) i * (i + 1) / 2) + j;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.routing;
+
+/**
+ * Rate limit with bursts: holds up to {@code capacity} tokens, refilled at a steady rate, one token
+ * per call. Like {@link RateLimiter} it never blocks: a caller takes a token (possibly on credit)
+ * and is told how long to wait before using it. The server can also close the bucket for a while
+ * (HTTP 429 with Retry-After).
+ */
+final class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastNanos;
+    private long closedUntilNanos;
+
+    /** @param perMinute sustained calls per minute, 0 or less disables limiting */
+    TokenBucket(double perMinute, double capacity) {
+        this.tokensPerNano = perMinute > 0 ? perMinute / 60e9 : 0.0;
+        this.capacity = Math.max(1.0, capacity);
+        this.tokens = this.capacity;
+        this.lastNanos = System.nanoTime();
+        this.closedUntilNanos = lastNanos;
+    }
+
+    /** Takes a token. @return nanoseconds until the call may start (0 = now) */
+    synchronized long reserveNanos() {
+        long now = System.nanoTime();
+        long wait = Math.max(0L, closedUntilNanos - now);
+        if (tokensPerNano == 0.0) return wait;
+
+        refill(now);
+        tokens -= 1.0;
+        // lastNanos is now, or the end of a closure (refilling starts from there)
+        long debt = tokens < 0 ? (long) Math.ceil(-tokens / tokensPerNano) : 0L;
+        return Math.max(wait, lastNanos + debt - now);
+    }
+
+    /** No call starts for the next {@code nanos}, and the bucket restarts empty after that. */
+    synchronized void closeFor(long nanos) {
+        long now = System.nanoTime();
+        closedUntilNanos = Math.max(closedUntilNanos, now + nanos);
+        if (tokensPerNano == 0.0) return;
+
+        refill(now);
+        tokens = Math.min(tokens, 0.0);
+        lastNanos = Math.max(lastNanos, closedUntilNanos);
+    }
+
+    private void refill(long now) {
+        if (now <= lastNanos) return;
+        tokens = Math.min(capacity, tokens + (now - lastNanos) * tokensPerNano);
+        lastNanos = now;
+    }
+}
@@ -0,0 +1,253 @@
+package org.example.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchies: nodes are removed one by one, least important first, and a shortcut
+ * u→w is added wherever the removed v lay on the only shortest u→v→w path. Afterwards every
+ * shortest path goes up the hierarchy and then down, so a query only searches upward from both
+ * ends (see {@link ChSearch}).
+ *
+ * Importance is the edge difference (shortcuts added minus edges removed) plus the number of
+ * already contracted neighbors, with lazy updates. Witness searches are cut after
+ * {@link #WITNESS_SETTLE_LIMIT} nodes: a missed witness only costs a superfluous shortcut.
+ */
+final class ChBuilder {
+
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /** Edges and shortcuts with the contraction order; mid is the bypassed node, -1 for a road edge. */
+    static final class Hierarchy {
+        int nodes;
+        int[] rank;
+        int edges;
+        int[] from;
+        int[] to;
+        float[] seconds;
+        float[] meters;
+        int[] mid;
+    }
+
+    private final int n;
+    private int m;
+    private int[] from;
+    private int[] to;
+    private double[] weight;
+    private double[] length;
+    private int[] mid;
+
+    // adjacency of the remaining graph: edge ids; edges to contracted nodes are removed
+    private final int[][] out;
+    private final int[] outSize;
+    private final int[][] in;
+    private final int[] inSize;
+
+    private final int[] contractedNeighbors;
+
+    // witness search
+    private final double[] dist;
+    private final int[] touched;
+    private int touchedCount;
+    private final MinHeap heap = new MinHeap();
+
+    private ChBuilder(OsmReader.Network net) {
+        n = net.nodes;
+        int cap = Math.max(16, net.edges * 2);
+        from = Arrays.copyOf(net.from, cap);
+        to = Arrays.copyOf(net.to, cap);
+        weight = new double[cap];
+        length = new double[cap];
+        mid = new int[cap];
+        out = new int[n][];
+        outSize = new int[n];
+        in = new int[n][];
+        inSize = new int[n];
+        for (int v = 0; v < n; v++) {
+            out[v] = new int[4];
+            in[v] = new int[4];
+        }
+        for (int e = 0; e < net.edges; e++) {
+            weight[e] = net.seconds[e];
+            length[e] = net.meters[e];
+            mid[e] = -1;
+            add(from[e], to[e], e);
+        }
+        m = net.edges;
+
+        contractedNeighbors = new int[n];
+        dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        touched = new int[n];
+    }
+
+    static Hierarchy build(OsmReader.Network net) {
+        return new ChBuilder(net).contractAll();
+    }
+
+    private Hierarchy contractAll() {
+        MinHeap queue = new MinHeap();
+        for (int v = 0; v < n; v++) queue.push(priority(v), v);
+
+        int[] rank = new int[n];
+        int level = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.peekNode();
+            queue.pop();
+            // lazy update: contract only if v is still (about) the least important
+            double p = priority(v);
+            if (!queue.isEmpty() && p > queue.peekKey()) {
+                queue.push(p, v);
+                continue;
+            }
+            contract(v, false);
+            rank[v] = level++;
+            detach(v);
+        }
+
+        Hierarchy h = new Hierarchy();
+        h.nodes = n;
+        h.rank = rank;
+        h.edges = m;
+        h.from = from;
+        h.to = to;
+        h.seconds = new float[m];
+        h.meters = new float[m];
+        for (int e = 0; e < m; e++) {
+            h.seconds[e] = (float) weight[e];
+            h.meters[e] = (float) length[e];
+        }
+        h.mid = mid;
+        return h;
+    }
+
+    private double priority(int v) {
+        int shortcuts = contract(v, true);
+        return shortcuts - inSize[v] - outSize[v] + contractedNeighbors[v];
+    }
+
+    /** @return number of shortcuts needed to remove v; adds them unless {@code simulate} */
+    private int contract(int v, boolean simulate) {
+        int shortcuts = 0;
+        for (int a = 0; a < inSize[v]; a++) {
+            int ein = in[v][a];
+            int u = from[ein];
+
+            double maxWeight = -1;
+            for (int b = 0; b < outSize[v]; b++) {
+                int eout = out[v][b];
+                if (to[eout] != u) maxWeight = Math.max(maxWeight, weight[ein] + weight[eout]);
+            }
+            if (maxWeight < 0) continue;
+            witnessSearch(u, v, maxWeight);
+
+            for (int b = 0; b < outSize[v]; b++) {
+                int eout = out[v][b];
+                int w = to[eout];
+                if (w == u) continue;
+                double via = weight[ein] + weight[eout];
+                if (dist[w] <= via) continue; // a path around v is as good
+                shortcuts++;
+                if (!simulate) addShortcut(u, w, via, length[ein] + length[eout], v);
+            }
+        }
+        return shortcuts;
+    }
+
+    /** Dijkstra from u in the remaining graph without v, up to {@code maxWeight}. */
+    private void witnessSearch(int u, int v, double maxWeight) {
+        for (int i = 0; i < touchedCount; i++) dist[touched[i]] = Double.POSITIVE_INFINITY;
+        touchedCount = 0;
+        heap.clear();
+
+        dist[u] = 0;
+        touched[touchedCount++] = u;
+        heap.push(0, u);
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            double d = heap.peekKey();
+            int x = heap.peekNode();
+            heap.pop();
+            if (d > dist[x]) continue;
+            if (d > maxWeight || ++settled > WITNESS_SETTLE_LIMIT) break;
+            for (int k = 0; k < outSize[x]; k++) {
+                int e = out[x][k];
+                int y = to[e];
+                if (y == v) continue;
+                double nd = d + weight[e];
+                if (nd < dist[y]) {
+                    if (dist[y] == Double.POSITIVE_INFINITY) touched[touchedCount++] = y;
+                    dist[y] = nd;
+                    heap.push(nd, y);
+                }
+            }
+        }
+    }
+
+    private void addShortcut(int u, int w, double seconds, double meters, int via) {
+        for (int k = 0; k < outSize[u]; k++) {
+            int e = out[u][k];
+            if (to[e] != w) continue;
+            if (weight[e] <= seconds) return;
+            if (mid[e] >= 0) { // a worse shortcut: improve it in place
+                weight[e] = seconds;
+                length[e] = meters;
+                mid[e] = via;
+                return;
+            }
+        }
+        if (m == from.length) {
+            int cap = m * 2;
+            from = Arrays.copyOf(from, cap);
+            to = Arrays.copyOf(to, cap);
+            weight = Arrays.copyOf(weight, cap);
+            length = Arrays.copyOf(length, cap);
+            mid = Arrays.copyOf(mid, cap);
+        }
+        from[m] = u;
+        to[m] = w;
+        weight[m] = seconds;
+        length[m] = meters;
+        mid[m] = via;
+        add(u, w, m);
+        m++;
+    }
+
+    private void add(int u, int w, int e) {
+        if (outSize[u] == out[u].length) out[u] = Arrays.copyOf(out[u], outSize[u] * 2);
+        out[u][outSize[u]++] = e;
+        if (inSize[w] == in[w].length) in[w] = Arrays.copyOf(in[w], inSize[w] * 2);
+        in[w][inSize[w]++] = e;
+    }
+
+    /** Removes the contracted v from its neighbors' lists; its edges stay in the hierarchy. */
+    private void detach(int v) {
+        for (int k = 0; k < outSize[v]; k++) {
+            int w = to[out[v][k]];
+            inSize[w] = removeEdgesFrom(in[w], inSize[w], v, true);
+            contractedNeighbors[w]++;
+        }
+        for (int k = 0; k < inSize[v]; k++) {
+            int u = from[in[v][k]];
+            outSize[u] = removeEdgesFrom(out[u], outSize[u], v, false);
+            contractedNeighbors[u]++;
+        }
+        out[v] = null;
+        in[v] = null;
+        outSize[v] = 0;
+        inSize[v] = 0;
+    }
+
+    /** Drops the edges whose other end ({@code from} if {@code incoming}) is v. @return new size */
+    private int removeEdgesFrom(int[] list, int size, int v, boolean incoming) {
+        int k = 0;
+        while (k < size) {
+            int e = list[k];
+            if ((incoming ? from[e] : to[e]) == v) {
+                list[k] = list[--size];
+            } else {
+                k++;
+            }
+        }
+        return size;
+    }
+}
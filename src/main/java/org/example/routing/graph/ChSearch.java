@@ -0,0 +1,149 @@
+package org.example.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Upward Dijkstra search in one direction of the hierarchy, run to completion. An upward search
+ * space is small (hundreds to a few thousand nodes even for a country), so the state lives in a
+ * node → slot hash table instead of arrays over the whole graph, and one instance per thread is
+ * reused for every query.
+ *
+ * Stall-on-demand: a node that a higher node already reached reaches cheaper through a downward
+ * edge is not on any shortest up-down path, so it is not expanded. Its cost stays an upper bound
+ * of a real path, which keeps minima over meeting nodes exact.
+ */
+final class ChSearch {
+    private int[] tableNode = new int[1024];
+    private int[] tableSlot = new int[1024];
+
+    private int size;
+    private int[] node = new int[256];
+    private double[] seconds = new double[256];
+    private double[] meters = new double[256];
+    private int[] parentSlot = new int[256];
+    private int[] parentEntry = new int[256];
+    private boolean[] settled = new boolean[256];
+    private int[] tablePos = new int[256];
+
+    private final MinHeap heap = new MinHeap();
+
+    ChSearch() {
+        Arrays.fill(tableNode, -1);
+    }
+
+    /**
+     * Searches {@code g} upward from {@code start}; afterwards slots 0 .. size() - 1 hold the reached nodes.
+     * @param reverse the other direction of the hierarchy, for stalling
+     */
+    void run(Csr g, Csr reverse, int start) {
+        // every entry goes at once, so plain clearing needs no tombstones
+        for (int i = 0; i < size; i++) tableNode[tablePos[i]] = -1;
+        size = 0;
+        heap.clear();
+
+        int s0 = slot(start);
+        seconds[s0] = 0;
+        meters[s0] = 0;
+        heap.push(0, s0);
+        while (!heap.isEmpty()) {
+            double d = heap.peekKey();
+            int s = heap.peekNode();
+            heap.pop();
+            if (settled[s] || d > seconds[s]) continue;
+            settled[s] = true;
+
+            int x = node[s];
+            if (stalled(reverse, x, d)) continue;
+            for (int e = g.begin(x), end = g.end(x); e < end; e++) {
+                double nd = d + g.seconds(e);
+                int t = slot(g.head(e));
+                if (nd < seconds[t]) {
+                    seconds[t] = nd;
+                    meters[t] = meters[s] + g.meters(e);
+                    parentSlot[t] = s;
+                    parentEntry[t] = e;
+                    heap.push(nd, t);
+                }
+            }
+        }
+    }
+
+    private boolean stalled(Csr reverse, int x, double d) {
+        for (int e = reverse.begin(x), end = reverse.end(x); e < end; e++) {
+            int t = find(reverse.head(e));
+            if (t >= 0 && seconds[t] + reverse.seconds(e) < d) return true;
+        }
+        return false;
+    }
+
+    int size() { return size; }
+
+    int node(int slot) { return node[slot]; }
+
+    double seconds(int slot) { return seconds[slot]; }
+
+    double meters(int slot) { return meters[slot]; }
+
+    /** Slot the node was reached from, -1 for the start. */
+    int parentSlot(int slot) { return parentSlot[slot]; }
+
+    /** Csr entry of the edge the node was reached by. */
+    int parentEntry(int slot) { return parentEntry[slot]; }
+
+    /** @return the node's slot, or -1 if the last search did not reach it */
+    int find(int x) {
+        int mask = tableNode.length - 1;
+        for (int i = hash(x) & mask; tableNode[i] >= 0; i = (i + 1) & mask) {
+            if (tableNode[i] == x) return tableSlot[i];
+        }
+        return -1;
+    }
+
+    /** The node's slot, taking a fresh one (unreached: +∞) on first sight. */
+    private int slot(int x) {
+        int mask = tableNode.length - 1;
+        int i = hash(x) & mask;
+        for (; tableNode[i] >= 0; i = (i + 1) & mask) {
+            if (tableNode[i] == x) return tableSlot[i];
+        }
+        if (size == node.length) {
+            int cap = size * 2;
+            node = Arrays.copyOf(node, cap);
+            seconds = Arrays.copyOf(seconds, cap);
+            meters = Arrays.copyOf(meters, cap);
+            parentSlot = Arrays.copyOf(parentSlot, cap);
+            parentEntry = Arrays.copyOf(parentEntry, cap);
+            settled = Arrays.copyOf(settled, cap);
+            tablePos = Arrays.copyOf(tablePos, cap);
+        }
+        int s = size++;
+        node[s] = x;
+        seconds[s] = Double.POSITIVE_INFINITY;
+        parentSlot[s] = -1;
+        parentEntry[s] = -1;
+        settled[s] = false;
+        tableNode[i] = x;
+        tableSlot[i] = s;
+        tablePos[s] = i;
+        if (2 * size > tableNode.length) rehash();
+        return s;
+    }
+
+    private void rehash() {
+        tableNode = new int[tableNode.length * 2];
+        tableSlot = new int[tableNode.length];
+        Arrays.fill(tableNode, -1);
+        int mask = tableNode.length - 1;
+        for (int s = 0; s < size; s++) {
+            int i = hash(node[s]) & mask;
+            while (tableNode[i] >= 0) i = (i + 1) & mask;
+            tableNode[i] = node[s];
+            tableSlot[i] = s;
+            tablePos[s] = i;
+        }
+    }
+
+    private static int hash(int x) {
+        return (x * 0x9E3779B9) >>> 7;
+    }
+}
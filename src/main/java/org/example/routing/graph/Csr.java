@@ -0,0 +1,47 @@
+package org.example.routing.graph;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * One direction of the upward graph in compressed sparse row form, read straight from the mapped
+ * file: the entries of node x are first[x] .. first[x + 1] - 1. In the forward graph an entry of x
+ * is the edge x→head, in the backward graph the edge head→x; either way head ranks above x.
+ */
+final class Csr {
+    private final IntBuffer first;
+    private final IntBuffer head;
+    private final FloatBuffer seconds;
+    private final FloatBuffer meters;
+    private final IntBuffer mid;
+
+    Csr(IntBuffer first, IntBuffer head, FloatBuffer seconds, FloatBuffer meters, IntBuffer mid) {
+        this.first = first;
+        this.head = head;
+        this.seconds = seconds;
+        this.meters = meters;
+        this.mid = mid;
+    }
+
+    int begin(int x) { return first.get(x); }
+
+    int end(int x) { return first.get(x + 1); }
+
+    int head(int e) { return head.get(e); }
+
+    double seconds(int e) { return seconds.get(e); }
+
+    double meters(int e) { return meters.get(e); }
+
+    /** Node bypassed by a shortcut, -1 for a road edge. */
+    int mid(int e) { return mid.get(e); }
+
+    /** The fastest entry of x with the given head, -1 if none. */
+    int find(int x, int h) {
+        int best = -1;
+        for (int e = begin(x), end = end(x); e < end; e++) {
+            if (head(e) == h && (best < 0 || seconds(e) < seconds(best))) best = e;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (double key, int node) pairs in two primitive arrays. No decrease-key:
+ * Dijkstra pushes a node again and skips entries whose key is stale.
+ */
+final class MinHeap {
+    private double[] keys = new double[64];
+    private int[] nodes = new int[64];
+    private int size;
+
+    boolean isEmpty() { return size == 0; }
+
+    void clear() { size = 0; }
+
+    double peekKey() { return keys[0]; }
+
+    int peekNode() { return nodes[0]; }
+
+    void push(double key, int node) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+
+    /** Removes the minimum; read it with {@link #peekKey()} / {@link #peekNode()} first. */
+    void pop() {
+        double key = keys[--size];
+        int node = nodes[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && keys[c + 1] < keys[c]) c++;
+            if (key <= keys[c]) break;
+            keys[i] = keys[c];
+            nodes[i] = nodes[c];
+            i = c;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+}
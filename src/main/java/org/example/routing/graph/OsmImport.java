@@ -0,0 +1,37 @@
+package org.example.routing.graph;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Builds a {@link RoadGraph} file from an OSM XML extract: reads the car network, contracts it
+ * and writes the upward graphs. Takes seconds for a city and minutes for a large region; the
+ * result is opened by {@link RoadGraph#open} in milliseconds.
+ */
+public final class OsmImport {
+
+    private OsmImport() {}
+
+    /** @param log progress lines (Russian, like the rest of the console output) */
+    public static void run(Path osm, Path graphFile, PrintStream log) throws IOException {
+        long t0 = System.nanoTime();
+        OsmReader.Network net = OsmReader.read(osm);
+        if (net.nodes == 0) throw new IOException("В выгрузке нет дорог для автомобиля: " + osm);
+        log.printf(Locale.ROOT, "Прочитано: %d узлов, %d рёбер (%.1f с)%n",
+                net.nodes, net.edges, seconds(t0));
+
+        long t1 = System.nanoTime();
+        ChBuilder.Hierarchy h = ChBuilder.build(net);
+        log.printf(Locale.ROOT, "Иерархия построена: %d шорткатов (%.1f с)%n",
+                h.edges - net.edges, seconds(t1));
+
+        RoadGraph.write(graphFile, net, h);
+        log.printf(Locale.ROOT, "Граф записан в %s (всего %.1f с)%n", graphFile, seconds(t0));
+    }
+
+    private static double seconds(long since) {
+        return (System.nanoTime() - since) / 1e9;
+    }
+}
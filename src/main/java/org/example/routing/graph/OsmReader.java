@@ -0,0 +1,303 @@
+package org.example.routing.graph;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the car road network from an OSM XML extract (.osm or .osm.gz) in one streaming pass.
+ *
+ * Every node of a drivable way becomes a graph node, so a path's geometry is just its nodes.
+ * Speeds come from the highway class, capped by a numeric maxspeed; oneway, junction=roundabout
+ * and access=no/private are honored. Only the largest connected part is kept, so an address
+ * never snaps to an isolated parking lot or a road cut off at the extract border.
+ */
+final class OsmReader {
+
+    /** Typical city speeds by highway class, km/h. */
+    private static final Map<String, Double> SPEEDS = new HashMap<>();
+    static {
+        SPEEDS.put("motorway", 90.0);
+        SPEEDS.put("trunk", 70.0);
+        SPEEDS.put("primary", 50.0);
+        SPEEDS.put("secondary", 40.0);
+        SPEEDS.put("tertiary", 35.0);
+        SPEEDS.put("unclassified", 30.0);
+        SPEEDS.put("residential", 25.0);
+        SPEEDS.put("living_street", 10.0);
+        SPEEDS.put("service", 15.0);
+        SPEEDS.put("road", 20.0);
+        for (String c : new String[]{"motorway", "trunk", "primary", "secondary", "tertiary"}) {
+            SPEEDS.put(c + "_link", SPEEDS.get(c) * 0.7);
+        }
+    }
+
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    /** The road network: nodes with fixed-point coordinates (degrees × 1e7) and directed edges. */
+    static final class Network {
+        int nodes;
+        int[] lat = new int[1024];
+        int[] lon = new int[1024];
+        int edges;
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        float[] seconds = new float[1024];
+        float[] meters = new float[1024];
+
+        void addEdge(int a, int b, double s, double m) {
+            if (edges == from.length) {
+                int cap = edges * 2;
+                from = Arrays.copyOf(from, cap);
+                to = Arrays.copyOf(to, cap);
+                seconds = Arrays.copyOf(seconds, cap);
+                meters = Arrays.copyOf(meters, cap);
+            }
+            from[edges] = a;
+            to[edges] = b;
+            seconds[edges] = (float) s;
+            meters[edges] = (float) m;
+            edges++;
+        }
+    }
+
+    private OsmReader() {}
+
+    static Network read(Path osm) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(osm), 1 << 16)) {
+            InputStream in = osm.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(raw, 1 << 16) : raw;
+            return largestComponent(parse(in));
+        } catch (XMLStreamException e) {
+            throw new IOException("Некорректный OSM XML: " + e.getMessage(), e);
+        }
+    }
+
+    private static Network parse(InputStream in) throws XMLStreamException {
+        XMLInputFactory f = XMLInputFactory.newFactory();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XMLStreamReader x = f.createXMLStreamReader(in, "UTF-8");
+
+        // all OSM nodes first (ways only reference them); graph nodes are taken on first use by a way
+        LongIntMap osmIndex = new LongIntMap();
+        int osmNodes = 0;
+        int[] osmLat = new int[1024];
+        int[] osmLon = new int[1024];
+        int[] graphId = new int[1024];
+
+        Network net = new Network();
+        long[] refs = new long[256];
+        int refCount = 0;
+        Map<String, String> tags = new HashMap<>();
+        boolean inWay = false;
+
+        while (x.hasNext()) {
+            int ev = x.next();
+            if (ev == XMLStreamConstants.START_ELEMENT) {
+                String name = x.getLocalName();
+                if (name.equals("node")) {
+                    if (osmNodes == osmLat.length) {
+                        osmLat = Arrays.copyOf(osmLat, osmNodes * 2);
+                        osmLon = Arrays.copyOf(osmLon, osmNodes * 2);
+                        graphId = Arrays.copyOf(graphId, osmNodes * 2);
+                    }
+                    osmIndex.put(Long.parseLong(x.getAttributeValue(null, "id")), osmNodes);
+                    osmLat[osmNodes] = fixed(x.getAttributeValue(null, "lat"));
+                    osmLon[osmNodes] = fixed(x.getAttributeValue(null, "lon"));
+                    graphId[osmNodes] = -1;
+                    osmNodes++;
+                } else if (name.equals("way")) {
+                    inWay = true;
+                    refCount = 0;
+                    tags.clear();
+                } else if (inWay && name.equals("nd")) {
+                    if (refCount == refs.length) refs = Arrays.copyOf(refs, refCount * 2);
+                    refs[refCount++] = Long.parseLong(x.getAttributeValue(null, "ref"));
+                } else if (inWay && name.equals("tag")) {
+                    tags.put(x.getAttributeValue(null, "k"), x.getAttributeValue(null, "v"));
+                }
+            } else if (ev == XMLStreamConstants.END_ELEMENT && x.getLocalName().equals("way")) {
+                inWay = false;
+                double speedKmh = speedKmh(tags);
+                if (speedKmh <= 0) continue;
+                int dir = direction(tags);
+
+                int prev = -1;
+                for (int i = 0; i < refCount; i++) {
+                    int o = osmIndex.get(refs[i]);
+                    if (o < 0) { // node outside the extract: the way is cut here
+                        prev = -1;
+                        continue;
+                    }
+                    if (graphId[o] < 0) graphId[o] = addNode(net, osmLat[o], osmLon[o]);
+                    int cur = graphId[o];
+                    if (prev >= 0 && prev != cur) {
+                        double m = meters(net, prev, cur);
+                        double s = m / (speedKmh / 3.6);
+                        if (dir >= 0) net.addEdge(prev, cur, s, m);
+                        if (dir <= 0) net.addEdge(cur, prev, s, m);
+                    }
+                    prev = cur;
+                }
+            }
+        }
+        x.close();
+        return net;
+    }
+
+    /** @return km/h, or 0 if cars cannot use the way */
+    private static double speedKmh(Map<String, String> tags) {
+        Double base = SPEEDS.get(tags.get("highway"));
+        if (base == null) return 0;
+        String access = tags.getOrDefault("motor_vehicle", tags.getOrDefault("access", ""));
+        if (access.equals("no") || access.equals("private") || "yes".equals(tags.get("area"))) return 0;
+
+        String max = tags.get("maxspeed");
+        if (max != null) {
+            String v = max.trim().toLowerCase(Locale.ROOT);
+            double factor = 1.0;
+            if (v.endsWith("mph")) {
+                factor = 1.609344;
+                v = v.substring(0, v.length() - 3).trim();
+            }
+            try {
+                double limit = Double.parseDouble(v) * factor;
+                if (limit > 0) return Math.min(base, limit);
+            } catch (NumberFormatException ignored) {
+                // "RU:urban", "signals" и т.п.: скорость по классу дороги
+            }
+        }
+        return base;
+    }
+
+    /** @return 1 one way along the nodes, -1 one way against them, 0 both ways */
+    private static int direction(Map<String, String> tags) {
+        String oneway = tags.getOrDefault("oneway", "");
+        if (oneway.equals("-1") || oneway.equals("reverse")) return -1;
+        if (oneway.equals("yes") || oneway.equals("true") || oneway.equals("1")) return 1;
+        if (oneway.equals("no")) return 0;
+        String highway = tags.get("highway");
+        boolean impliedOneway = "roundabout".equals(tags.get("junction"))
+                || "motorway".equals(highway) || "motorway_link".equals(highway);
+        return impliedOneway ? 1 : 0;
+    }
+
+    private static int addNode(Network net, int lat, int lon) {
+        if (net.nodes == net.lat.length) {
+            net.lat = Arrays.copyOf(net.lat, net.nodes * 2);
+            net.lon = Arrays.copyOf(net.lon, net.nodes * 2);
+        }
+        net.lat[net.nodes] = lat;
+        net.lon[net.nodes] = lon;
+        return net.nodes++;
+    }
+
+    private static int fixed(String degrees) {
+        return (int) Math.round(Double.parseDouble(degrees) * 1e7);
+    }
+
+    static double meters(Network net, int a, int b) {
+        return haversine(net.lat[a] * 1e-7, net.lon[a] * 1e-7, net.lat[b] * 1e-7, net.lon[b] * 1e-7);
+    }
+
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double sLat = Math.sin(Math.toRadians(lat2 - lat1) * 0.5);
+        double sLon = Math.sin(Math.toRadians(lon2 - lon1) * 0.5);
+        double h = sLat * sLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sLon * sLon;
+        return 2.0 * EARTH_RADIUS_M * Math.asin(Math.sqrt(Math.min(1.0, h)));
+    }
+
+    /** Keeps the largest weakly connected part of the network (union-find over the edges). */
+    private static Network largestComponent(Network net) {
+        int n = net.nodes;
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int e = 0; e < net.edges; e++) {
+            int a = root(parent, net.from[e]);
+            int b = root(parent, net.to[e]);
+            if (a != b) parent[a] = b;
+        }
+        int[] size = new int[n];
+        int best = -1;
+        for (int i = 0; i < n; i++) {
+            int r = root(parent, i);
+            if (++size[r] > (best < 0 ? 0 : size[best])) best = r;
+        }
+        if (best < 0 || size[best] == n) return net;
+
+        Network out = new Network();
+        int[] id = new int[n];
+        for (int i = 0; i < n; i++) {
+            id[i] = root(parent, i) == best ? addNode(out, net.lat[i], net.lon[i]) : -1;
+        }
+        for (int e = 0; e < net.edges; e++) {
+            int a = id[net.from[e]];
+            if (a >= 0) out.addEdge(a, id[net.to[e]], net.seconds[e], net.meters[e]);
+        }
+        return out;
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Open-addressing map from OSM ids to array indexes (a HashMap would box millions of keys). */
+    private static final class LongIntMap {
+        private long[] keys = new long[1 << 16];
+        private int[] values = new int[1 << 16];
+        private boolean[] used = new boolean[1 << 16];
+        private int size;
+
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) grow();
+            int i = slot(key, keys.length);
+            while (used[i] && keys[i] != key) i = (i + 1) & (keys.length - 1);
+            if (!used[i]) size++;
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /** @return the value, or -1 */
+        int get(long key) {
+            int i = slot(key, keys.length);
+            while (used[i]) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & (keys.length - 1);
+            }
+            return -1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int capacity) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & (capacity - 1);
+        }
+    }
+}
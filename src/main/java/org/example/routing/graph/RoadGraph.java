@@ -0,0 +1,407 @@
+package org.example.routing.graph;
+
+import org.example.routing.CostMatrix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Road graph with contraction hierarchies, memory-mapped from the file written by {@link OsmImport}.
+ * Opening costs a few mmap calls and a spatial index over the node coordinates; the edges are
+ * paged in by the OS as queries touch them and shared by every thread.
+ *
+ * Layout (big-endian): header [int magic][int version][int nodes][int fwdEdges][int bwdEdges],
+ * then int lat[nodes], int lon[nodes] (degrees × 1e7), then for the forward and the backward upward
+ * graph: int first[nodes + 1], int head[edges], float seconds[edges], float meters[edges],
+ * int mid[edges] (see {@link Csr}).
+ */
+public final class RoadGraph {
+
+    private static final int MAGIC = 0x52475246; // "RGRF"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+
+    /** Spatial index cell, degrees (about 550 m north–south). */
+    private static final double CELL_DEG = 0.005;
+
+    private final int nodes;
+    private final IntBuffer lat;
+    private final IntBuffer lon;
+    private final Csr fwd;
+    private final Csr bwd;
+
+    // nodes sorted by grid cell: cellOf[i] is the cell of cellNodes[i]; the grid covers the graph's extent
+    private final int minCellLat;
+    private final int minCellLon;
+    private final int cellRows;
+    private final int cellCols;
+    private final int[] cellOf;
+    private final int[] cellNodes;
+
+    private final ThreadLocal<ChSearch> up = ThreadLocal.withInitial(ChSearch::new);
+    private final ThreadLocal<ChSearch> down = ThreadLocal.withInitial(ChSearch::new);
+
+    private RoadGraph(int nodes, IntBuffer lat, IntBuffer lon, Csr fwd, Csr bwd) {
+        this.nodes = nodes;
+        this.lat = lat;
+        this.lon = lon;
+        this.fwd = fwd;
+        this.bwd = bwd;
+
+        int loLat = Integer.MAX_VALUE, hiLat = Integer.MIN_VALUE, loLon = Integer.MAX_VALUE, hiLon = Integer.MIN_VALUE;
+        for (int v = 0; v < nodes; v++) {
+            loLat = Math.min(loLat, cellIndex(lat(v)));
+            hiLat = Math.max(hiLat, cellIndex(lat(v)));
+            loLon = Math.min(loLon, cellIndex(lon(v)));
+            hiLon = Math.max(hiLon, cellIndex(lon(v)));
+        }
+        minCellLat = loLat;
+        minCellLon = loLon;
+        cellRows = nodes == 0 ? 0 : hiLat - loLat + 1;
+        cellCols = nodes == 0 ? 0 : hiLon - loLon + 1;
+
+        long[] keyed = new long[nodes];
+        for (int v = 0; v < nodes; v++) {
+            keyed[v] = ((long) cellKey(cellIndex(lat(v)), cellIndex(lon(v))) << 32) | v;
+        }
+        Arrays.sort(keyed);
+        cellOf = new int[nodes];
+        cellNodes = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            cellOf[i] = (int) (keyed[i] >> 32);
+            cellNodes[i] = (int) keyed[i];
+        }
+    }
+
+    public static RoadGraph open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && ch.read(header) >= 0) { /* read the whole header */ }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Не файл графа дорог: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Неподдерживаемая версия графа дорог: " + version);
+            int n = header.getInt();
+            int fwdEdges = header.getInt();
+            int bwdEdges = header.getInt();
+
+            long[] pos = {HEADER_BYTES};
+            IntBuffer lat = ints(ch, pos, n);
+            IntBuffer lon = ints(ch, pos, n);
+            Csr fwd = csr(ch, pos, n, fwdEdges);
+            Csr bwd = csr(ch, pos, n, bwdEdges);
+            if (pos[0] != ch.size()) throw new IOException("Файл графа дорог повреждён: " + file);
+            // the mappings stay valid after the channel is closed
+            return new RoadGraph(n, lat, lon, fwd, bwd);
+        }
+    }
+
+    private static Csr csr(FileChannel ch, long[] pos, int n, int edges) throws IOException {
+        return new Csr(ints(ch, pos, n + 1), ints(ch, pos, edges), floats(ch, pos, edges),
+                floats(ch, pos, edges), ints(ch, pos, edges));
+    }
+
+    private static IntBuffer ints(FileChannel ch, long[] pos, int count) throws IOException {
+        return map(ch, pos, count).asIntBuffer();
+    }
+
+    private static FloatBuffer floats(FileChannel ch, long[] pos, int count) throws IOException {
+        return map(ch, pos, count).asFloatBuffer();
+    }
+
+    private static ByteBuffer map(FileChannel ch, long[] pos, int count) throws IOException {
+        long bytes = 4L * count;
+        if (count < 0 || pos[0] + bytes > ch.size()) throw new IOException("Файл графа дорог повреждён");
+        ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, pos[0], bytes);
+        pos[0] += bytes;
+        return b;
+    }
+
+    public int nodeCount() { return nodes; }
+
+    public double lat(int node) { return lat.get(node) * 1e-7; }
+
+    public double lon(int node) { return lon.get(node) * 1e-7; }
+
+    /** @return the node closest to the point, or -1 if none is within {@code maxMeters} */
+    public int nearestNode(double latDeg, double lonDeg, double maxMeters) {
+        int cLat = cellIndex(latDeg);
+        int cLon = cellIndex(lonDeg);
+        // a cell is narrower east–west than north–south; count rings by the narrow side
+        double cellMeters = CELL_DEG * 111_195 * Math.max(0.05, Math.cos(Math.toRadians(latDeg)));
+        int maxRing = (int) Math.min(400, Math.ceil(maxMeters / cellMeters) + 1);
+
+        int best = -1;
+        double bestMeters = maxMeters;
+        for (int r = 0; r <= maxRing; r++) {
+            if (best >= 0 && (r - 1) * cellMeters > bestMeters) break;
+            for (int dLat = -r; dLat <= r; dLat++) {
+                boolean edgeRow = dLat == -r || dLat == r;
+                for (int dLon = -r; dLon <= r; dLon += edgeRow ? 1 : 2 * r) {
+                    int c = cellKey(cLat + dLat, cLon + dLon);
+                    for (int i = c < 0 ? nodes : firstInCell(c); i < nodes && cellOf[i] == c; i++) {
+                        int v = cellNodes[i];
+                        double m = OsmReader.haversine(latDeg, lonDeg, lat(v), lon(v));
+                        if (m <= bestMeters) {
+                            best = v;
+                            bestMeters = m;
+                        }
+                    }
+                    if (r == 0) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int firstInCell(int c) {
+        int lo = 0;
+        int hi = nodes;
+        while (lo < hi) {
+            int midIdx = (lo + hi) >>> 1;
+            if (cellOf[midIdx] < c) lo = midIdx + 1; else hi = midIdx;
+        }
+        return lo;
+    }
+
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEG);
+    }
+
+    /** @return the cell's number, -1 outside the graph's extent */
+    private int cellKey(int cLat, int cLon) {
+        int row = cLat - minCellLat;
+        int col = cLon - minCellLon;
+        if (row < 0 || row >= cellRows || col < 0 || col >= cellCols) return -1;
+        return row * cellCols + col;
+    }
+
+    /**
+     * Many-to-many travel times and distances between graph nodes by bucket-based CH queries:
+     * one backward upward search per target leaves (target, cost) entries in buckets at the
+     * nodes it reaches, then one forward upward search per source scans the buckets it meets.
+     * Both rounds run in parallel. Distances are those of the fastest path; unreachable pairs
+     * are +∞. durs[i][j] / dists[i][j] is from nodes[i] to nodes[j].
+     */
+    public void matrix(int[] nodeIds, CostMatrix durs, CostMatrix dists) {
+        int k = nodeIds.length;
+
+        // backward searches: the reached nodes and their costs per target
+        int[][] reached = new int[k][];
+        double[][] secs = new double[k][];
+        double[][] mets = new double[k][];
+        IntStream.range(0, k).parallel().forEach(j -> {
+            ChSearch s = down.get();
+            s.run(bwd, fwd, nodeIds[j]);
+            int size = s.size();
+            reached[j] = new int[size];
+            secs[j] = new double[size];
+            mets[j] = new double[size];
+            for (int slot = 0; slot < size; slot++) {
+                reached[j][slot] = s.node(slot);
+                secs[j][slot] = s.seconds(slot);
+                mets[j][slot] = s.meters(slot);
+            }
+        });
+
+        // buckets: all entries sorted by node, (node << 32 | entry) keys
+        int total = 0;
+        for (int[] r : reached) total += r.length;
+        long[] order = new long[total];
+        int[] entryTarget = new int[total];
+        for (int j = 0, c = 0; j < k; j++) {
+            for (int x = 0; x < reached[j].length; x++, c++) {
+                order[c] = ((long) reached[j][x] << 32) | c;
+                entryTarget[c] = j;
+            }
+        }
+        Arrays.sort(order);
+        int[] entryOffset = new int[k];
+        for (int j = 1; j < k; j++) entryOffset[j] = entryOffset[j - 1] + reached[j - 1].length;
+        int[] bucketNode = new int[total];
+        int[] bucketTarget = new int[total];
+        double[] bucketSeconds = new double[total];
+        double[] bucketMeters = new double[total];
+        for (int i = 0; i < total; i++) {
+            int c = (int) order[i];
+            int j = entryTarget[c];
+            bucketNode[i] = (int) (order[i] >>> 32);
+            bucketTarget[i] = j;
+            bucketSeconds[i] = secs[j][c - entryOffset[j]];
+            bucketMeters[i] = mets[j][c - entryOffset[j]];
+        }
+
+        // forward searches: one matrix row each
+        IntStream.range(0, k).parallel().forEach(i -> {
+            ChSearch s = up.get();
+            s.run(fwd, bwd, nodeIds[i]);
+            double[] rowSeconds = new double[k];
+            double[] rowMeters = new double[k];
+            Arrays.fill(rowSeconds, Double.POSITIVE_INFINITY);
+            Arrays.fill(rowMeters, Double.POSITIVE_INFINITY);
+            for (int slot = 0, size = s.size(); slot < size; slot++) {
+                double t = s.seconds(slot);
+                if (t == Double.POSITIVE_INFINITY) continue;
+                int x = s.node(slot);
+                for (int b = firstBucket(bucketNode, x); b < bucketNode.length && bucketNode[b] == x; b++) {
+                    int j = bucketTarget[b];
+                    double via = t + bucketSeconds[b];
+                    if (via < rowSeconds[j]) {
+                        rowSeconds[j] = via;
+                        rowMeters[j] = s.meters(slot) + bucketMeters[b];
+                    }
+                }
+            }
+            for (int j = 0; j < k; j++) {
+                durs.set(i, j, i == j ? 0.0 : rowSeconds[j]);
+                dists.set(i, j, i == j ? 0.0 : rowMeters[j]);
+            }
+        });
+    }
+
+    private static int firstBucket(int[] bucketNode, int x) {
+        int lo = 0;
+        int hi = bucketNode.length;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (bucketNode[m] < x) lo = m + 1; else hi = m;
+        }
+        return lo;
+    }
+
+    /**
+     * Road geometry of the fastest path between two nodes, as [lon, lat] points from {@code from}
+     * to {@code to}; null if {@code to} cannot be reached.
+     */
+    public List<double[]> path(int from, int to) {
+        List<double[]> out = new ArrayList<>();
+        out.add(new double[]{lon(from), lat(from)});
+        if (from == to) return out;
+
+        ChSearch f = up.get();
+        ChSearch b = down.get();
+        f.run(fwd, bwd, from);
+        b.run(bwd, fwd, to);
+
+        int meetF = -1;
+        int meetB = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int slot = 0, size = f.size(); slot < size; slot++) {
+            int sb = b.find(f.node(slot));
+            if (sb < 0) continue;
+            double t = f.seconds(slot) + b.seconds(sb);
+            if (t < best) {
+                best = t;
+                meetF = slot;
+                meetB = sb;
+            }
+        }
+        if (meetF < 0) return null;
+
+        // up from `from` to the meeting node (collected backwards), then down to `to`
+        List<int[]> edges = new ArrayList<>();
+        for (int s = meetF; f.parentSlot(s) >= 0; s = f.parentSlot(s)) {
+            int e = f.parentEntry(s);
+            edges.add(new int[]{f.node(f.parentSlot(s)), f.node(s), fwd.mid(e)});
+        }
+        Collections.reverse(edges);
+        for (int s = meetB; b.parentSlot(s) >= 0; s = b.parentSlot(s)) {
+            int e = b.parentEntry(s);
+            edges.add(new int[]{b.node(s), b.node(b.parentSlot(s)), bwd.mid(e)});
+        }
+        for (int[] e : edges) unpack(e[0], e[1], e[2], out);
+        return out;
+    }
+
+    /** Appends the road nodes after {@code a} of the edge or shortcut a→b. */
+    private void unpack(int a, int b, int mid, List<double[]> out) {
+        // explicit stack: shortcut chains can be deep
+        int[] stack = new int[48];
+        int top = 0;
+        stack[top++] = a;
+        stack[top++] = b;
+        stack[top++] = mid;
+        while (top > 0) {
+            int m = stack[--top];
+            int y = stack[--top];
+            int x = stack[--top];
+            if (m < 0) {
+                out.add(new double[]{lon(y), lat(y)});
+                continue;
+            }
+            // m was contracted before x and y: x→m is in m's backward list, m→y in its forward one
+            int first = bwd.find(m, x);
+            int second = fwd.find(m, y);
+            if (top + 6 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = m;
+            stack[top++] = y;
+            stack[top++] = second < 0 ? -1 : fwd.mid(second);
+            stack[top++] = x;
+            stack[top++] = m;
+            stack[top++] = first < 0 ? -1 : bwd.mid(first);
+        }
+    }
+
+    /** Writes the graph file (to a temporary file first, so a failed import keeps the old one). */
+    static void write(Path file, OsmReader.Network net, ChBuilder.Hierarchy h) throws IOException {
+        int n = h.nodes;
+        int[] fwdFirst = new int[n + 1];
+        int[] bwdFirst = new int[n + 1];
+        for (int e = 0; e < h.edges; e++) {
+            if (h.rank[h.from[e]] < h.rank[h.to[e]]) fwdFirst[h.from[e] + 1]++; else bwdFirst[h.to[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            fwdFirst[v + 1] += fwdFirst[v];
+            bwdFirst[v + 1] += bwdFirst[v];
+        }
+        int[] fwdEntries = new int[fwdFirst[n]];
+        int[] bwdEntries = new int[bwdFirst[n]];
+        int[] fwdFill = Arrays.copyOf(fwdFirst, n);
+        int[] bwdFill = Arrays.copyOf(bwdFirst, n);
+        for (int e = 0; e < h.edges; e++) {
+            if (h.rank[h.from[e]] < h.rank[h.to[e]]) fwdEntries[fwdFill[h.from[e]]++] = e;
+            else bwdEntries[bwdFill[h.to[e]]++] = e;
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(fwdEntries.length);
+            out.writeInt(bwdEntries.length);
+            for (int v = 0; v < n; v++) out.writeInt(net.lat[v]);
+            for (int v = 0; v < n; v++) out.writeInt(net.lon[v]);
+            writeCsr(out, fwdFirst, fwdEntries, h.to, h);
+            writeCsr(out, bwdFirst, bwdEntries, h.from, h);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeCsr(DataOutputStream out, int[] first, int[] entries, int[] head,
+                                 ChBuilder.Hierarchy h) throws IOException {
+        for (int f : first) out.writeInt(f);
+        for (int e : entries) out.writeInt(head[e]);
+        for (int e : entries) out.writeFloat(h.seconds[e]);
+        for (int e : entries) out.writeFloat(h.meters[e]);
+        for (int e : entries) out.writeInt(h.mid[e]);
+    }
+}
@@ -1,14 +1,22 @@
 package org.example.ui;
 
 import org.example.config.AppConfig;
+import org.example.model.DeliveryStop;
 import org.example.model.Location;
 import org.example.model.RouteResult;
+import org.example.model.StopListParser;
 import org.example.optimizer.RouteOptimizer;
+import org.example.routing.CachingRoutingProvider;
+import org.example.routing.GeocodeCache;
+import org.example.routing.OfflineRoutingProvider;
 import org.example.routing.OrsClient;
+import org.example.routing.OrsDirections;
+import org.example.routing.OrsTransport;
+import org.example.routing.PairwiseCostCache;
 import org.example.routing.RoutingProvider;
-import com.fasterxml.jackson.databind.JsonNode;
+import org.example.routing.graph.RoadGraph;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.*;
+import okhttp3.HttpUrl;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -27,6 +35,7 @@ import javafx.scene.SnapshotParameters;
 import javafx.scene.image.WritableImage;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -41,7 +50,7 @@ import java.io.*;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
-import java.time.Duration;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -66,7 +75,7 @@ public class MainFrame extends JFrame {
     private final JLabel totalsLabel = new JLabel("—");
 
     private final DefaultTableModel tableModel = new DefaultTableModel(
-            new Object[]{"#", "Адрес (нормализованный)", "Lat", "Lon"}, 0
+            new Object[]{"#", "Адрес (нормализованный)", "Lat", "Lon", "Прибытие"}, 0
     );
     private final JTable table = new JTable(tableModel);
 
@@ -76,6 +85,11 @@ public class MainFrame extends JFrame {
     private RouteResult lastResult = null;
     private String lastGoogleMapsLink = "";
 
+    // Opened on first use and kept for the whole session, so repeated runs hit the in-memory LRU
+    private GeocodeCache geocodeCache = null;
+    private PairwiseCostCache costCache = null;
+    private RoadGraph roadGraph = null;
+
     public MainFrame() {
         super("Оптимизатор маршрута курьера (ORS + интерактивная карта)");
 
@@ -112,6 +126,18 @@ public class MainFrame extends JFrame {
         // ✅ Убираем стартовые примеры и ставим placeholder-подсказки
         installPlaceholder(startField, START_PLACEHOLDER);
         installPlaceholder(addressesArea, ADDRESSES_PLACEHOLDER);
+
+        warmUpConnections();
+    }
+
+    /** Opens the ORS connection while the user is still typing addresses. */
+    private static void warmUpConnections() {
+        try {
+            AppConfig cfg = AppConfig.load();
+            if (cfg.httpWarmUp()) OrsTransport.shared(cfg).warmUp();
+        } catch (RuntimeException e) {
+            // config problems are reported when the user presses the button
+        }
     }
 
     private JPanel buildTopPanel() {
@@ -188,16 +214,22 @@ public class MainFrame extends JFrame {
         resetOutputs();
         setBusy(true, "Считаю...");
 
-        SwingWorker<Void, Void> w = new SwingWorker<>() {
+        SwingWorker<Void, RouteResult> w = new SwingWorker<>() {
             RouteResult result;
             List<double[]> geometry;
+            LocalTime departure;
+            AppConfig cfg;
 
             @Override
             protected Void doInBackground() throws Exception {
-                AppConfig cfg = AppConfig.load();
+                cfg = AppConfig.load();
 
-                RoutingProvider routing = new OrsClient(cfg);
-                RouteOptimizer opt = new RouteOptimizer(routing);
+                RoutingProvider routing = new OrsClient(cfg, costCache(cfg));
+                GeocodeCache cache = geocodeCache(cfg);
+                if (cache != null) routing = new CachingRoutingProvider(routing, cache);
+                RoadGraph graph = roadGraph(cfg);
+                if (graph != null) routing = new OfflineRoutingProvider(routing, graph, cfg);
+                RouteOptimizer opt = new RouteOptimizer(routing, cfg);
 
                 String startRaw = startField.getText();
                 String addressesRaw = addressesArea.getText();
@@ -206,29 +238,68 @@ public class MainFrame extends JFrame {
                 String start = (startRaw != null && startRaw.equals(START_PLACEHOLDER)) ? "" : startRaw;
                 String addrText = (addressesRaw != null && addressesRaw.equals(ADDRESSES_PLACEHOLDER)) ? "" : addressesRaw;
 
-                List<String> deliveries = parseAddresses(addrText);
+                List<DeliveryStop> deliveries = StopListParser.parse(addrText, cfg.departureTime());
                 if (deliveries.isEmpty()) throw new IllegalArgumentException("Добавь хотя бы 1 адрес доставки.");
-
-                // 1) Optimize order (matrix based)
-                result = opt.optimize(start, deliveries);
-
-                // 2) Fetch ORS directions geometry for the ordered route (for map drawing)
-                geometry = OrsDirections.fetchRouteGeoJsonGeometry(cfg, result.orderedStops());
+                departure = cfg.departureTime();
+
+                // 1) Optimize order (matrix based; delivery windows, if any, are honored).
+                //    Intermediate routes go to process(): the straight-line draft while the ORS
+                //    matrix loads, then the solver's improvements (already throttled by the optimizer).
+                result = opt.optimizeStops(start, deliveries, route -> {
+                    if (!route.isApproximate() || cfg.approxPreview()) publish(route);
+                });
+
+                // 2) Road geometry for the ordered route (for map drawing): from the offline graph
+                //    if there is one, else ORS directions; an approximate route means ORS is
+                //    unreachable, so connect the stops directly. The route is already optimized,
+                //    so a failed or incomplete line falls back to straight lines instead of an error.
+                geometry = null;
+                if (!result.isApproximate()) {
+                    try {
+                        geometry = routing.routeGeometry(result.orderedStops());
+                        if (geometry == null) geometry = new OrsDirections(cfg).fetch(result.orderedStops()).geometry();
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        System.err.println("Линия маршрута по дорогам недоступна: " + e.getMessage());
+                    }
+                }
+                if (geometry == null || geometry.size() < 2) geometry = straightLines(result.orderedStops());
                 return null;
             }
 
+            @Override
+            protected void process(List<RouteResult> routes) {
+                // only the newest one matters if the EDT fell behind
+                RouteResult route = routes.get(routes.size() - 1);
+                if (isDone()) return;
+                renderResult(route, departure);
+                mapPanel.setRoute(route.orderedStops(), straightLines(route.orderedStops()));
+                statusLabel.setText(route.isApproximate()
+                        ? "Предварительный маршрут по прямой, жду матрицу ORS..."
+                        : String.format(Locale.ROOT, "Улучшаю маршрут: %.2f км...", route.totalDistanceMeters() / 1000.0));
+            }
+
             @Override
             protected void done() {
                 try {
                     get();
                     lastResult = result;
 
-                    renderResult(result);
+                    renderResult(result, departure);
+                    enableExports();
 
                     // Render interactive map
                     mapPanel.setRoute(result.orderedStops(), geometry);
 
-                    setBusy(false, "Готово.");
+                    GeocodeCache cache = geocodeCache;
+                    String http = OrsTransport.shared(cfg).stats();
+                    String done = result.isApproximate()
+                            ? "Нет связи с ORS: маршрут по прямым расстояниям, км и время приблизительные."
+                            : "Готово.";
+                    setBusy(false, cache == null ? done + " " + http : String.format(Locale.ROOT,
+                            "%s Кэш геокодинга: %d попаданий, %d промахов, %d адресов. %s",
+                            done, cache.hits(), cache.misses(), cache.size(), http));
                 } catch (Exception ex) {
                     setBusy(false, "Ошибка: " + ex.getMessage());
                     JOptionPane.showMessageDialog(MainFrame.this, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
@@ -239,17 +310,56 @@ public class MainFrame extends JFrame {
         w.execute();
     }
 
-    private void renderResult(RouteResult res) {
-        DecimalFormat df = new DecimalFormat("0.000000");
+    private static List<double[]> straightLines(List<Location> stops) {
+        List<double[]> out = new ArrayList<>(stops.size());
+        for (Location l : stops) out.add(new double[]{l.lon(), l.lat()});
+        return out;
+    }
 
-        int i = 1;
-        for (Location l : res.orderedStops()) {
-            tableModel.addRow(new Object[]{
-                    i++,
-                    l.address(),
-                    df.format(l.lat()),
-                    df.format(l.lon())
-            });
+    private synchronized GeocodeCache geocodeCache(AppConfig cfg) {
+        if (geocodeCache != null || !cfg.geocodeCacheEnabled()) return geocodeCache;
+        try {
+            geocodeCache = GeocodeCache.open(cfg.geocodeCacheFile(),
+                    cfg.geocodeCacheMemoryEntries(), cfg.geocodeCacheMaxEntries(), cfg.geocodeCacheTtl());
+            GeocodeCache c = geocodeCache;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try { c.close(); } catch (IOException ignored) {}
+            }));
+        } catch (IOException e) {
+            // кэш не обязателен: без него просто геокодируем через сеть
+            geocodeCache = null;
+        }
+        return geocodeCache;
+    }
+
+    /** The offline graph, opened once; null if none is configured. */
+    private synchronized RoadGraph roadGraph(AppConfig cfg) throws IOException {
+        if (roadGraph == null && cfg.offlineGraphFile() != null) roadGraph = RoadGraph.open(cfg.offlineGraphFile());
+        return roadGraph;
+    }
+
+    private synchronized PairwiseCostCache costCache(AppConfig cfg) {
+        if (costCache == null && cfg.matrixCacheMaxEntries() > 0) {
+            costCache = new PairwiseCostCache(cfg.matrixCacheMaxEntries());
+        }
+        return costCache;
+    }
+
+    private void renderResult(RouteResult res, LocalTime departure) {
+        DecimalFormat df = new DecimalFormat("0.000000");
+        double[] starts = res.serviceStartSeconds();
+
+        // rows are overwritten in place: intermediate routes replace each other without flicker
+        List<Location> stops = res.orderedStops();
+        tableModel.setRowCount(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            Location l = stops.get(i);
+            String arrival = starts == null ? "" : departure.plusSeconds(Math.round(starts[i])).format(StopListParser.CLOCK);
+            setCell(i, 0, i + 1);
+            setCell(i, 1, l.address());
+            setCell(i, 2, df.format(l.lat()));
+            setCell(i, 3, df.format(l.lon()));
+            setCell(i, 4, arrival);
         }
 
         double km = res.totalDistanceMeters() / 1000.0;
@@ -258,7 +368,14 @@ public class MainFrame extends JFrame {
         totalsLabel.setText(String.format(Locale.ROOT, "Итого: %.2f км, %.0f мин", km, minutes));
 
         lastGoogleMapsLink = buildGoogleMapsLink(res.orderedStops());
+    }
+
+    private void setCell(int row, int col, Object value) {
+        if (!Objects.equals(tableModel.getValueAt(row, col), value)) tableModel.setValueAt(value, row, col);
+    }
 
+    /** Only for the final route: a link or export of an intermediate one would be stale. */
+    private void enableExports() {
         openMapsBtn.setEnabled(!lastGoogleMapsLink.isBlank());
         copyLinkBtn.setEnabled(!lastGoogleMapsLink.isBlank());
         exportCsvBtn.setEnabled(true);
@@ -327,16 +444,6 @@ public class MainFrame extends JFrame {
         }
     }
 
-    private List<String> parseAddresses(String raw) {
-        List<String> out = new ArrayList<>();
-        if (raw == null) return out;
-        for (String line : raw.split("\\R")) {
-            String t = line.trim();
-            if (!t.isEmpty()) out.add(t);
-        }
-        return out;
-    }
-
     // ---------- Google Maps link ----------
     private static String buildGoogleMapsLink(List<Location> ordered) {
         if (ordered == null || ordered.size() < 2) return "";
@@ -402,6 +509,7 @@ public class MainFrame extends JFrame {
         private final JFXPanel fxPanel = new JFXPanel();
         private volatile WebEngine engine;
         private volatile WebView webView;
+        private final MapSync shown = new MapSync(); // FX thread
 
         FxMapPanel() {
             setLayout(new BorderLayout());
@@ -422,43 +530,44 @@ public class MainFrame extends JFrame {
 
         void clear() {
             Platform.runLater(() -> {
+                shown.clear();
                 if (engine != null) engine.executeScript("window.__clearRoute && window.__clearRoute();");
             });
         }
 
+        /**
+         * Shows the route line and the stop markers. Only the difference to what the page already
+         * shows is sent (see {@link MapSync}): changed markers, and the new legs as {@link RouteLod}s
+         * that the page asks for the level of detail of its zoom.
+         */
         void setRoute(List<Location> stops, List<double[]> routeLonLat) {
             if (stops == null || stops.isEmpty() || routeLonLat == null || routeLonLat.size() < 2) return;
             if (engine == null) return;
 
-            Map<String, Object> geojson = new LinkedHashMap<>();
-            geojson.put("type", "Feature");
-            Map<String, Object> geom = new LinkedHashMap<>();
-            geom.put("type", "LineString");
-            List<List<Double>> coords = new ArrayList<>();
-            for (double[] p : routeLonLat) coords.add(List.of(p[0], p[1]));
-            geom.put("coordinates", coords);
-            geojson.put("geometry", geom);
-            geojson.put("properties", Map.of());
-
-            List<Map<String, Object>> markers = new ArrayList<>();
-            for (int i = 0; i < stops.size(); i++) {
-                Location s = stops.get(i);
-                markers.add(Map.of(
-                        "idx", i + 1,
-                        "name", s.address(),
-                        "lon", s.lon(),
-                        "lat", s.lat()
-                ));
-            }
-
-            try {
-                String geojsonStr = om.writeValueAsString(geojson);
-                String markersStr = om.writeValueAsString(markers);
-
-                Platform.runLater(() -> waitLoadedThen(() ->
-                        engine.executeScript("window.__setRoute(" + geojsonStr + "," + markersStr + ");")
-                ));
-            } catch (Exception ignored) {}
+            List<Location> stopsCopy = List.copyOf(stops);
+            List<double[]> line = List.copyOf(routeLonLat);
+            Platform.runLater(() -> waitLoadedThen(() -> {
+                MapSync.Diff d = shown.update(stopsCopy, line);
+                if (d.isEmpty()) return;
+                try {
+                    JSObject legs = (JSObject) engine.executeScript("window.routeLegs");
+                    for (Map.Entry<Integer, RouteLod> e : d.addedLegs.entrySet()) {
+                        legs.setMember(String.valueOf(e.getKey()), e.getValue());
+                    }
+                    engine.executeScript("window.__updateRoute("
+                            + om.writeValueAsString(d.removedLegs) + ","
+                            + om.writeValueAsString(d.addedLegs.keySet()) + ","
+                            + om.writeValueAsString(d.markers) + ","
+                            + d.markerCount + "," + d.fit + ");");
+                } catch (Exception e) {
+                    // the page may hold part of the diff: start over so the next route is sent in full
+                    System.err.println("Карта не обновилась: " + e.getMessage());
+                    shown.clear();
+                    try {
+                        engine.executeScript("window.__clearRoute && window.__clearRoute();");
+                    } catch (Exception ignored) {}
+                }
+            }));
         }
 
         BufferedImage getSnapshot(int width, int height) throws Exception {
@@ -519,13 +628,6 @@ public class MainFrame extends JFrame {
               <script src="https://unpkg.com/leaflet@1.9.4/dist/leaflet.js"></script>
               <style>
                 html, body, #map { height: 100%; width: 100%; margin: 0; }
-                .marker-label {
-                  background: white;
-                  border: 1px solid #333;
-                  border-radius: 10px;
-                  padding: 2px 6px;
-                  font: 12px/14px sans-serif;
-                }
               </style>
             </head>
             <body>
@@ -537,40 +639,141 @@ public class MainFrame extends JFrame {
                   attribution: '&copy; OpenStreetMap contributors'
                 }).addTo(map);
 
-                let routeLayer = null;
-                const markersLayer = L.layerGroup().addTo(map);
-
-                function fitToLayers() {
-                  const group = L.featureGroup([]);
-                  if (routeLayer) group.addLayer(routeLayer);
-                  markersLayer.eachLayer(l => group.addLayer(l));
-                  if (group.getLayers().length > 0) map.fitBounds(group.getBounds().pad(0.15));
+                // route lines on one shared canvas instead of an SVG path each
+                const lineRenderer = L.canvas({ padding: 0.5 });
+
+                // Google encoded polyline (1e-5 degrees) -> [[lat, lon], ...]
+                function decodePolyline(s) {
+                  const out = [];
+                  let i = 0, lat = 0, lon = 0;
+                  function next() {
+                    let b, shift = 0, r = 0;
+                    do { b = s.charCodeAt(i++) - 63; r |= (b & 0x1f) << shift; shift += 5; } while (b >= 0x20);
+                    return (r & 1) ? ~(r >> 1) : (r >> 1);
+                  }
+                  while (i < s.length) {
+                    lat += next();
+                    lon += next();
+                    out.push([lat * 1e-5, lon * 1e-5]);
+                  }
+                  return out;
                 }
 
-                window.__clearRoute = function() {
-                  if (routeLayer) { map.removeLayer(routeLayer); routeLayer = null; }
-                  markersLayer.clearLayers();
-                };
+                // legs of the route by id; window.routeLegs[id] is the Java RouteLod of a leg
+                window.routeLegs = {};
+                const legLayers = {};
 
-                window.__setRoute = function(geojsonFeature, markers) {
-                  window.__clearRoute();
+                function drawLeg(id, zoom) {
+                  const lod = window.routeLegs[id];
+                  if (!lod) return;
+                  const latlngs = decodePolyline(lod.encoded(zoom));
+                  if (legLayers[id]) legLayers[id].setLatLngs(latlngs);
+                  else legLayers[id] = L.polyline(latlngs, { weight: 5, opacity: 0.9, renderer: lineRenderer }).addTo(map);
+                }
 
-                  routeLayer = L.geoJSON(geojsonFeature, {
-                    style: { weight: 5, opacity: 0.9 }
-                  }).addTo(map);
+                // stops: one canvas for all markers; nearby ones merge into a counted cluster below CLUSTER_ZOOM
+                const CLUSTER_ZOOM = 16, CLUSTER_PX = 44, R = 11;
+                const stops = [];
+                let drawn = []; // what is on the canvas: {x, y, r, items}
+
+                const StopCanvas = L.Layer.extend({
+                  onAdd: function(m) {
+                    this._canvas = L.DomUtil.create('canvas', 'leaflet-zoom-hide');
+                    m.createPane('stops').style.zIndex = 650;
+                    m.getPane('stops').appendChild(this._canvas);
+                    m.on('moveend zoomend resize viewreset', this.redraw, this);
+                    this.redraw();
+                  },
+                  redraw: function() {
+                    const size = map.getSize();
+                    const c = this._canvas;
+                    L.DomUtil.setPosition(c, map.containerPointToLayerPoint([0, 0]));
+                    if (c.width !== size.x || c.height !== size.y) { c.width = size.x; c.height = size.y; }
+                    const g = c.getContext('2d');
+                    g.clearRect(0, 0, c.width, c.height);
+
+                    const cells = new Map();
+                    drawn = [];
+                    const clustered = map.getZoom() < CLUSTER_ZOOM;
+                    for (const s of stops) {
+                      if (!s) continue;
+                      const p = map.latLngToContainerPoint([s.lat, s.lon]);
+                      if (p.x < -CLUSTER_PX || p.y < -CLUSTER_PX || p.x > size.x + CLUSTER_PX || p.y > size.y + CLUSTER_PX) continue;
+                      if (!clustered) { drawn.push({ x: p.x, y: p.y, items: [s] }); continue; }
+                      const key = Math.floor(p.x / CLUSTER_PX) + ':' + Math.floor(p.y / CLUSTER_PX);
+                      let cl = cells.get(key);
+                      if (!cl) { cl = { x: 0, y: 0, items: [] }; cells.set(key, cl); drawn.push(cl); }
+                      cl.x += p.x; cl.y += p.y; cl.items.push(s);
+                    }
 
-                  markers.forEach(m => {
-                    const icon = L.divIcon({
-                      className: 'marker-label',
-                      html: String(m.idx),
-                      iconSize: [22, 22],
-                      iconAnchor: [11, 11]
-                    });
-                    const marker = L.marker([m.lat, m.lon], { icon }).addTo(markersLayer);
-                    marker.bindPopup('<b>' + m.idx + '</b>: ' + (m.name || ''));
-                  });
+                    g.textAlign = 'center';
+                    g.textBaseline = 'middle';
+                    for (const d of drawn) {
+                      const n = d.items.length;
+                      if (clustered) { d.x /= n; d.y /= n; }
+                      d.r = n > 1 ? R + Math.min(12, 3 * Math.log2(n)) : R;
+                      g.beginPath();
+                      g.arc(d.x, d.y, d.r, 0, 2 * Math.PI);
+                      g.fillStyle = n > 1 ? '#3b7dd8' : 'white';
+                      g.fill();
+                      g.lineWidth = 1.5;
+                      g.strokeStyle = '#333';
+                      g.stroke();
+                      g.fillStyle = n > 1 ? 'white' : 'black';
+                      g.font = (n > 1 ? 'bold ' : '') + '12px sans-serif';
+                      g.fillText(String(n > 1 ? n : d.items[0].idx), d.x, d.y);
+                    }
+                  }
+                });
+                const stopCanvas = new StopCanvas().addTo(map);
+
+                map.on('zoomend', () => {
+                  const z = Math.round(map.getZoom());
+                  for (const id in legLayers) drawLeg(id, z);
+                });
+
+                // a click on a stop shows its address, on a cluster zooms in on it
+                map.on('click', e => {
+                  const p = e.containerPoint;
+                  const hit = drawn.find(d => (d.x - p.x) * (d.x - p.x) + (d.y - p.y) * (d.y - p.y) <= d.r * d.r);
+                  if (!hit) return;
+                  if (hit.items.length > 1) {
+                    map.fitBounds(L.latLngBounds(hit.items.map(s => [s.lat, s.lon])).pad(0.3));
+                  } else {
+                    const s = hit.items[0];
+                    L.popup().setLatLng([s.lat, s.lon]).setContent('<b>' + s.idx + '</b>: ' + (s.name || '')).openOn(map);
+                  }
+                });
 
-                  fitToLayers();
+                window.__clearRoute = function() {
+                  for (const id in legLayers) map.removeLayer(legLayers[id]);
+                  for (const id in legLayers) delete legLayers[id];
+                  window.routeLegs = {};
+                  stops.length = 0;
+                  map.closePopup();
+                  stopCanvas.redraw();
+                };
+
+                // diff from Java: legs gone and new (their RouteLod already in routeLegs), changed stops
+                window.__updateRoute = function(removedLegs, addedLegs, changedStops, stopCount, fit) {
+                  for (const id of removedLegs) {
+                    if (legLayers[id]) { map.removeLayer(legLayers[id]); delete legLayers[id]; }
+                    delete window.routeLegs[id];
+                  }
+                  for (const s of changedStops) stops[s.i] = s;
+                  stops.length = stopCount;
+
+                  if (fit) {
+                    const bounds = L.latLngBounds(stops.map(s => [s.lat, s.lon]));
+                    for (const id of addedLegs) {
+                      const lod = window.routeLegs[id];
+                      if (lod) bounds.extend(L.latLngBounds(decodePolyline(lod.encoded(0))));
+                    }
+                    map.fitBounds(bounds.pad(0.15), { animate: false });
+                  }
+                  const z = Math.round(map.getZoom());
+                  for (const id of addedLegs) drawLeg(id, z);
+                  stopCanvas.redraw();
                 };
 
                 map.setView([52.52, 13.405], 12);
@@ -581,55 +784,6 @@ public class MainFrame extends JFrame {
         }
     }
 
-    // =========================================================================================
-    // ORS directions geometry fetcher (GeoJSON)
-    // =========================================================================================
-    private static class OrsDirections {
-        private static final OkHttpClient http = new OkHttpClient.Builder()
-                .callTimeout(Duration.ofSeconds(45))
-                .build();
-
-        private static final ObjectMapper om = new ObjectMapper();
-
-        static List<double[]> fetchRouteGeoJsonGeometry(AppConfig cfg, List<Location> orderedStops) throws Exception {
-            if (orderedStops == null || orderedStops.size() < 2) return List.of();
-
-            var coords = new ArrayList<List<Double>>();
-            for (Location l : orderedStops) coords.add(List.of(l.lon(), l.lat()));
-
-            String url = "https://api.openrouteservice.org/v2/directions/" + cfg.orsProfile() + "/geojson";
-
-            String bodyJson = om.createObjectNode()
-                    .set("coordinates", om.valueToTree(coords))
-                    .toString();
-
-            Request req = new Request.Builder()
-                    .url(url)
-                    .addHeader("Authorization", cfg.orsApiKey())
-                    .addHeader("Content-Type", "application/json; charset=utf-8")
-                    .post(RequestBody.create(bodyJson, MediaType.parse("application/json")))
-                    .build();
-
-            try (Response r = http.newCall(req).execute()) {
-                String body = r.body() != null ? r.body().string() : "";
-                if (!r.isSuccessful()) {
-                    throw new RuntimeException("ORS Directions error: HTTP " + r.code() + " body=" + body);
-                }
-
-                JsonNode root = om.readTree(body);
-                JsonNode feats = root.path("features");
-                if (!feats.isArray() || feats.size() == 0) return List.of();
-
-                JsonNode coordsNode = feats.get(0).path("geometry").path("coordinates");
-                if (!coordsNode.isArray() || coordsNode.size() < 2) return List.of();
-
-                List<double[]> out = new ArrayList<>(coordsNode.size());
-                for (JsonNode p : coordsNode) out.add(new double[]{p.get(0).asDouble(), p.get(1).asDouble()});
-                return out;
-            }
-        }
-    }
-
     // =========================================================================================
     // CSV export
     // =========================================================================================
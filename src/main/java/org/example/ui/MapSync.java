@@ -0,0 +1,163 @@
+package org.example.ui;
+
+import org.example.model.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What the map page currently shows, so a new route is sent as a diff: the markers whose stop
+ * changed and the legs whose line changed. Between two intermediate routes of the optimizer most
+ * legs and markers stay put, and the page then redraws a handful instead of hundreds.
+ *
+ * A leg is the stretch of the route line between two consecutive stops; equal lines are the same
+ * leg wherever they appear in the route. Not thread-safe: used on the FX thread only.
+ */
+final class MapSync {
+
+    /** Cut the line at a vertex this close to a stop (directions snap stops onto the road). */
+    private static final double STOP_NEAR_METERS = 30;
+
+    /** Changes for the page; the new legs' lines are in {@link #addedLegs} (id → line). */
+    static final class Diff {
+        final List<Integer> removedLegs = new ArrayList<>();
+        final Map<Integer, RouteLod> addedLegs = new LinkedHashMap<>();
+        /** {i, idx, lat, lon, name} for every marker that is new or changed. */
+        final List<Map<String, Object>> markers = new ArrayList<>();
+        int markerCount;
+        /** The page was empty: zoom to the route. */
+        boolean fit;
+
+        boolean isEmpty() {
+            return removedLegs.isEmpty() && addedLegs.isEmpty() && markers.isEmpty() && !fit;
+        }
+    }
+
+    private final List<Location> stops = new ArrayList<>();
+    private final Map<Leg, Integer> legs = new HashMap<>();
+    /** The page only holds weak references to Java objects, so the shown levels live here. */
+    private final Map<Integer, RouteLod> lods = new HashMap<>();
+    private int nextLegId = 1;
+
+    void clear() {
+        stops.clear();
+        legs.clear();
+        lods.clear();
+    }
+
+    /** Records {@code newStops} and {@code line} as shown and returns what the page has to change. */
+    Diff update(List<Location> newStops, List<double[]> line) {
+        Diff d = new Diff();
+        d.fit = stops.isEmpty();
+
+        for (int i = 0; i < newStops.size(); i++) {
+            Location s = newStops.get(i);
+            if (i < stops.size() && same(stops.get(i), s)) continue;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("i", i);
+            m.put("idx", i + 1);
+            m.put("lat", s.lat());
+            m.put("lon", s.lon());
+            m.put("name", s.address());
+            d.markers.add(m);
+        }
+        d.markerCount = newStops.size();
+        stops.clear();
+        stops.addAll(newStops);
+
+        Map<Leg, Integer> kept = new HashMap<>();
+        for (List<double[]> part : splitLegs(newStops, line)) {
+            if (part.size() < 2) continue;
+            Leg leg = new Leg(part);
+            if (kept.containsKey(leg)) continue;
+            Integer id = legs.remove(leg);
+            if (id == null) {
+                id = nextLegId++;
+                RouteLod lod = RouteLod.of(part);
+                lods.put(id, lod);
+                d.addedLegs.put(id, lod);
+            }
+            kept.put(leg, id);
+        }
+        for (Integer gone : legs.values()) {
+            d.removedLegs.add(gone);
+            lods.remove(gone);
+        }
+        legs.clear();
+        legs.putAll(kept);
+        return d;
+    }
+
+    private static boolean same(Location a, Location b) {
+        return a.lat() == b.lat() && a.lon() == b.lon() && Objects.equals(a.address(), b.address());
+    }
+
+    /**
+     * Cuts the line at the vertices closest to the inner stops, in route order. Legs share their
+     * boundary vertex, so drawn together they are the whole line however the cuts fall.
+     */
+    static List<List<double[]>> splitLegs(List<Location> stops, List<double[]> line) {
+        List<List<double[]>> out = new ArrayList<>();
+        int start = 0;
+        for (int k = 1; k < stops.size() - 1 && start < line.size() - 1; k++) {
+            int cut = vertexNear(line, start + 1, stops.get(k));
+            out.add(line.subList(start, cut + 1));
+            start = cut;
+        }
+        out.add(line.subList(start, line.size()));
+        return out;
+    }
+
+    /**
+     * The first vertex from {@code from} on where the line comes within {@link #STOP_NEAR_METERS}
+     * of the stop and is closest there; if it never does, the closest vertex of the rest.
+     */
+    private static int vertexNear(List<double[]> line, int from, Location stop) {
+        double cosLat = Math.cos(Math.toRadians(stop.lat()));
+        int best = from;
+        double bestMeters = Double.POSITIVE_INFINITY;
+        for (int i = from; i < line.size(); i++) {
+            double[] p = line.get(i);
+            double dx = (p[0] - stop.lon()) * cosLat;
+            double dy = p[1] - stop.lat();
+            double m = Math.sqrt(dx * dx + dy * dy) * 111_195;
+            if (m < bestMeters) {
+                bestMeters = m;
+                best = i;
+            } else if (bestMeters <= STOP_NEAR_METERS && m > STOP_NEAR_METERS) {
+                break; // left the stop again
+            }
+        }
+        return best;
+    }
+
+    /** A leg's line by value: lon/lat pairs in one array. */
+    private static final class Leg {
+        private final double[] coords;
+        private final int hash;
+
+        Leg(List<double[]> points) {
+            coords = new double[points.size() * 2];
+            for (int i = 0; i < points.size(); i++) {
+                coords[2 * i] = points.get(i)[0];
+                coords[2 * i + 1] = points.get(i)[1];
+            }
+            hash = Arrays.hashCode(coords);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Leg && Arrays.equals(coords, ((Leg) o).coords);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
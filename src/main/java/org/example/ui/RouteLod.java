@@ -0,0 +1,143 @@
+package org.example.ui;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Route line for the map at every zoom: Douglas–Peucker with a tolerance of
+ * {@link #TOLERANCE_PX} screen pixels at the requested zoom, as an encoded polyline
+ * (Google's format, 1e-5 degrees). A route of tens of thousands of points shrinks to a few
+ * hundred at city zoom, and the map decodes a short string instead of parsing a JSON array.
+ *
+ * The simplification runs once: every vertex gets the largest tolerance at which
+ * Douglas–Peucker still keeps it, so a level is a single filter pass. Levels are built
+ * when the map first asks for a zoom and kept. The map calls {@link #encoded(int)} from
+ * JavaScript, so this class and that method are public.
+ */
+public final class RouteLod {
+
+    static final int MAX_ZOOM = 19;
+    private static final double TOLERANCE_PX = 0.75;
+    private static final double TILE_PX = 256;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] importance; // in Web Mercator units (the world is 1 × 1)
+    private final String[] levels = new String[MAX_ZOOM + 1];
+
+    private RouteLod(double[] lat, double[] lon, double[] importance) {
+        this.lat = lat;
+        this.lon = lon;
+        this.importance = importance;
+    }
+
+    /** @param lonLat [lon, lat] points */
+    static RouteLod of(List<double[]> lonLat) {
+        int n = lonLat.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            lon[i] = lonLat.get(i)[0];
+            lat[i] = lonLat.get(i)[1];
+            // Web Mercator as the map draws it, so a tolerance in pixels is the same everywhere
+            x[i] = (lon[i] + 180.0) / 360.0;
+            double s = Math.sin(Math.toRadians(Math.max(-85.05, Math.min(85.05, lat[i]))));
+            y[i] = 0.5 - Math.log((1 + s) / (1 - s)) / (4 * Math.PI);
+        }
+        return new RouteLod(lat, lon, importance(x, y));
+    }
+
+    /**
+     * Douglas–Peucker without a fixed tolerance: the farthest vertex of a span splits it and gets
+     * its distance, capped by the span's own value so a vertex never outlives the one it hangs on.
+     */
+    private static double[] importance(double[] x, double[] y) {
+        int n = x.length;
+        double[] imp = new double[n];
+        if (n == 0) return imp;
+        imp[0] = Double.POSITIVE_INFINITY;
+        imp[n - 1] = Double.POSITIVE_INFINITY;
+
+        // spans to split: [from, to, cap]; explicit stack, a route can have 100k points
+        int[] spans = new int[64];
+        double[] caps = new double[32];
+        spans[0] = 0;
+        spans[1] = n - 1;
+        caps[0] = Double.POSITIVE_INFINITY;
+        int top = 1;
+        while (top > 0) {
+            top--;
+            int a = spans[2 * top];
+            int b = spans[2 * top + 1];
+            double cap = caps[top];
+            if (b - a < 2) continue;
+
+            int far = -1;
+            double farDist = -1;
+            for (int i = a + 1; i < b; i++) {
+                double d = segmentDistance(x[i], y[i], x[a], y[a], x[b], y[b]);
+                if (d > farDist) {
+                    farDist = d;
+                    far = i;
+                }
+            }
+            double v = Math.min(farDist, cap);
+            imp[far] = v;
+
+            if (2 * (top + 2) > spans.length) {
+                spans = Arrays.copyOf(spans, spans.length * 2);
+                caps = Arrays.copyOf(caps, caps.length * 2);
+            }
+            spans[2 * top] = a;
+            spans[2 * top + 1] = far;
+            caps[top++] = v;
+            spans[2 * top] = far;
+            spans[2 * top + 1] = b;
+            caps[top++] = v;
+        }
+        return imp;
+    }
+
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len2));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+    /** The route simplified for {@code zoom}, as an encoded polyline. Called by the map's JavaScript. */
+    public synchronized String encoded(int zoom) {
+        int z = Math.max(0, Math.min(MAX_ZOOM, zoom));
+        if (levels[z] == null) {
+            double tolerance = TOLERANCE_PX / (TILE_PX * Math.pow(2, z));
+            StringBuilder sb = new StringBuilder();
+            long prevLat = 0;
+            long prevLon = 0;
+            for (int i = 0; i < lat.length; i++) {
+                if (importance[i] <= tolerance) continue;
+                long la = Math.round(lat[i] * 1e5);
+                long lo = Math.round(lon[i] * 1e5);
+                encode(la - prevLat, sb);
+                encode(lo - prevLon, sb);
+                prevLat = la;
+                prevLon = lo;
+            }
+            levels[z] = sb.toString();
+        }
+        return levels[z];
+    }
+
+    private static void encode(long delta, StringBuilder sb) {
+        long v = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
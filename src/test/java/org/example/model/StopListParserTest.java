@@ -0,0 +1,64 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Address lines with windows and service times, counted from a departure at 9:00. */
+class StopListParserTest {
+
+    private static final LocalTime DEPARTURE = LocalTime.of(9, 0);
+
+    @Test
+    void windowsAndServiceAreSecondsAfterDeparture() throws Exception {
+        List<DeliveryStop> stops = StopListParser.parse("""
+                Тверская 1, Москва | 10:00-12:30 | 5
+
+                Арбат 10 |  | 1,5
+                Покровка 3 | 8:00-9:00
+                """, DEPARTURE);
+
+        assertEquals(3, stops.size());
+        assertEquals("Тверская 1, Москва", stops.get(0).address());
+        assertEquals(3600.0, stops.get(0).windowStartSeconds());
+        assertEquals(12600.0, stops.get(0).windowEndSeconds());
+        assertEquals(300.0, stops.get(0).serviceSeconds());
+
+        assertEquals(0.0, stops.get(1).windowStartSeconds());
+        assertEquals(Double.POSITIVE_INFINITY, stops.get(1).windowEndSeconds());
+        assertEquals(90.0, stops.get(1).serviceSeconds());
+
+        // opened before departure, closes as the courier leaves: still reachable at second 0
+        assertEquals(0.0, stops.get(2).windowStartSeconds());
+        assertEquals(0.0, stops.get(2).windowEndSeconds());
+    }
+
+    @Test
+    void windowAcrossMidnightIsRejected() throws Exception {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> StopListParser.parse("Тверская 1 | 22:00-1:00", DEPARTURE));
+        assertTrue(e.getMessage().contains("22:00-1:00"), e.getMessage());
+        assertTrue(e.getMessage().contains("через полночь"), e.getMessage());
+    }
+
+    @Test
+    void windowEndingBeforeDepartureIsRejected() throws Exception {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> StopListParser.parse("Тверская 1\nАрбат 10 | 7:00-8:59", DEPARTURE));
+        assertTrue(e.getMessage().contains("до выезда в 9:00"), e.getMessage());
+        assertTrue(e.getMessage().endsWith("Арбат 10 | 7:00-8:59"), e.getMessage());
+    }
+
+    @Test
+    void malformedLinesAreRejected() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> StopListParser.parse("Тверская 1 | 10:00", DEPARTURE));
+        assertThrows(IllegalArgumentException.class, () -> StopListParser.parse("Тверская 1 | 25:00-26:00", DEPARTURE));
+        assertThrows(IllegalArgumentException.class, () -> StopListParser.parse("Тверская 1 | | пять", DEPARTURE));
+        assertThrows(IllegalArgumentException.class, () -> StopListParser.parse("Тверская 1 | 10:00-11:00 | 5 | 6", DEPARTURE));
+    }
+}
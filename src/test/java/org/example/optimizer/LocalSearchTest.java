@@ -0,0 +1,149 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 2-opt and Or-opt on random asymmetric matrices: every move a search takes must change the path's
+ * cost by exactly the delta it was priced at, and the result must never cost more than the input.
+ */
+class LocalSearchTest {
+
+    private static final int[] SIZES = {4, 5, 9, 20, 60};
+    private static final int ROUNDS = 20;
+    private static final double EPS = 1e-6;
+
+    @Test
+    void twoOptDeltasMatchRecomputedCost() throws Exception {
+        Random r = new Random(42);
+        for (int n : SIZES) {
+            for (int round = 0; round < ROUNDS; round++) {
+                CostMatrix cost = matrix(r, n);
+                int[] order = shuffled(r, n);
+                Moves moves = new Moves(order, cost);
+                double before = PathConstruction.totalCost(order, cost);
+
+                TwoOpt.improvePath(order, cost, null, moves);
+
+                assertTrue(PathConstruction.totalCost(order, cost) <= before + EPS, "2-opt made n=" + n + " worse");
+                assertTrue(n < 9 || moves.count > 0, "2-opt found nothing on a random path, n=" + n);
+            }
+        }
+    }
+
+    @Test
+    void neighborSearchDeltasMatchRecomputedCost() throws Exception {
+        Random r = new Random(42);
+        for (int n : SIZES) {
+            for (int round = 0; round < ROUNDS; round++) {
+                CostMatrix cost = matrix(r, n);
+                int[] order = round % 2 == 0 ? shuffled(r, n) : PathConstruction.nearestNeighborPathFromStart(0, cost);
+                Moves moves = new Moves(order, cost);
+                double before = PathConstruction.totalCost(order, cost);
+
+                NeighborLocalSearch.improvePath(order, cost, NeighborLists.build(cost, Math.min(6, n - 1)),
+                        null, Deadline.none(), null, moves);
+
+                assertTrue(PathConstruction.totalCost(order, cost) <= before + EPS,
+                        "neighbor search made n=" + n + " worse");
+                assertTrue(isPermutationFromZero(order), "not a path from the start: n=" + n);
+            }
+        }
+    }
+
+    @Test
+    void windowedDeltasMatchRecomputedCost() throws Exception {
+        Random r = new Random(7);
+        for (int n : SIZES) {
+            for (int round = 0; round < ROUNDS; round++) {
+                CostMatrix cost = matrix(r, n);
+                TimeWindows windows = windows(r, n);
+                int[] order = shuffled(r, n);
+                double late = windows.lateness(order, cost);
+
+                TwoOpt.improvePath(order, cost, windows, new Moves(order, cost));
+                NeighborLocalSearch.improvePath(order, cost, NeighborLists.build(cost, Math.min(6, n - 1)),
+                        null, Deadline.none(), windows, new Moves(order, cost));
+
+                assertTrue(windows.lateness(order, cost) <= late + TimeWindows.EPS, "windowed search got later, n=" + n);
+            }
+        }
+    }
+
+    /** Checks each reported move against a full recomputation of the path it produced. */
+    private static final class Moves implements Progress {
+        private final CostMatrix cost;
+        private double current;
+        int count;
+
+        Moves(int[] order, CostMatrix cost) {
+            this.cost = cost;
+            this.current = PathConstruction.totalCost(order, cost);
+        }
+
+        @Override
+        public void improved(int[] order) {
+            assertEquals(current, PathConstruction.totalCost(order, cost), EPS, "reported path after move " + count);
+        }
+
+        @Override
+        public void moved(int[] order, double delta) {
+            double actual = PathConstruction.totalCost(order, cost);
+            assertEquals(current + delta, actual, EPS, "delta of move " + count);
+            current = actual;
+            count++;
+        }
+    }
+
+    /** Independent travel times each way, 1..100. */
+    private static CostMatrix matrix(Random r, int n) {
+        CostMatrix m = CostMatrix.dense(n, false);
+        for (int a = 0; a < n; a++) {
+            for (int b = 0; b < n; b++) {
+                if (a != b) m.set(a, b, 1 + 99 * r.nextDouble());
+            }
+        }
+        return m;
+    }
+
+    /** Windows tight enough that a random order is late at several stops. */
+    private static TimeWindows windows(Random r, int n) {
+        double[] earliest = new double[n];
+        double[] latest = new double[n];
+        double[] service = new double[n];
+        for (int v = 1; v < n; v++) {
+            earliest[v] = r.nextDouble() * 40 * n;
+            latest[v] = earliest[v] + 20 + r.nextDouble() * 200;
+            service[v] = r.nextInt(10);
+        }
+        latest[0] = Double.POSITIVE_INFINITY;
+        return new TimeWindows(earliest, latest, service);
+    }
+
+    /** 0 first, the rest in random order. */
+    private static int[] shuffled(Random r, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 1; i--) {
+            int j = 1 + r.nextInt(i);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    private static boolean isPermutationFromZero(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int v : order) {
+            if (v < 0 || v >= order.length || seen[v]) return false;
+            seen[v] = true;
+        }
+        return order[0] == 0;
+    }
+}
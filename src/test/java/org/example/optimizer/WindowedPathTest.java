@@ -0,0 +1,204 @@
+package org.example.optimizer;
+
+import org.example.routing.CostMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prefix/suffix time-window summaries against a plain walk along the candidate route, on random
+ * instances with windows tight enough that most paths are late. The summaries are reused across
+ * moves and rebuilt lazily after {@link WindowedPath#invalidate}, as the local searches do.
+ */
+class WindowedPathTest {
+
+    private static final int[] SIZES = {3, 4, 7, 15, 40};
+    private static final int ROUNDS = 10;
+    private static final int MOVES = 60;
+    private static final double EPS = 1e-6;
+
+    @Test
+    void reversalsMatchSimulation() throws Exception {
+        Random r = new Random(42);
+        int taken = 0;
+        int refused = 0;
+        for (int n : SIZES) {
+            for (int round = 0; round < ROUNDS; round++) {
+                Instance in = new Instance(r, n);
+                int[] order = shuffled(r, n);
+                WindowedPath wp = new WindowedPath(order, in.cost, in.windows);
+                TimeWindows.Seg rev = new TimeWindows.Seg();
+
+                for (int move = 0; move < MOVES && n >= 3; move++) {
+                    assertEquals(in.warp(order), wp.warp(), EPS, "warp of the current path, n=" + n);
+
+                    // the chain TwoOpt walks: rev = order[k], …, order[i], one prepend per k
+                    int i = 1 + r.nextInt(n - 2);
+                    wp.reversed(rev, i, i);
+                    for (int k = i + 1; k < n; k++) {
+                        wp.prepend(rev, order[k]);
+                        int[] cand = order.clone();
+                        reverse(cand, i, k);
+                        boolean expected = in.accepts(order, cand);
+                        assertTrue(expected == wp.accepts(i - 1, rev, k + 1, in.costDelta(order, cand)),
+                                "reversal " + i + ".." + k + ", n=" + n);
+                        if (expected) taken++;
+                        else refused++;
+                    }
+
+                    // apply some reversal, taken or not, so the summaries go stale
+                    int k = i + 1 + r.nextInt(n - i - 1);
+                    reverse(order, i, k);
+                    wp.invalidate(i, k);
+                }
+                assertEquals(in.warp(order), wp.warp(), EPS, "final warp, n=" + n);
+            }
+        }
+        assertTrue(taken > 0 && refused > 0, "only one outcome seen: " + taken + " taken, " + refused + " refused");
+    }
+
+    @Test
+    void segmentMovesMatchSimulation() throws Exception {
+        Random r = new Random(7);
+        TimeWindows.Seg seg = new TimeWindows.Seg();
+        TimeWindows.Seg part = new TimeWindows.Seg();
+        for (int n : SIZES) {
+            if (n < 4) continue;
+            for (int round = 0; round < ROUNDS; round++) {
+                Instance in = new Instance(r, n);
+                int[] order = shuffled(r, n);
+                WindowedPath wp = new WindowedPath(order, in.cost, in.windows);
+
+                for (int move = 0; move < MOVES; move++) {
+                    int s = 1 + r.nextInt(n - 1);
+                    int e = Math.min(n - 1, s + r.nextInt(3));
+                    int xPos = r.nextInt(n);
+                    if (xPos >= s - 1 && xPos <= e) continue;
+                    boolean reversed = r.nextBoolean();
+
+                    // composed the way NeighborLocalSearch prices an Or-opt move
+                    if (reversed) wp.reversed(seg, s, e);
+                    else wp.forward(seg, s, e);
+                    boolean actual;
+                    int[] cand = moveSegment(order, s, e, xPos, reversed);
+                    double delta = in.costDelta(order, cand);
+                    if (xPos < s) {
+                        wp.forward(part, xPos + 1, s - 1);
+                        wp.concat(seg, seg, part);
+                        actual = wp.accepts(xPos, seg, e + 1, delta);
+                    } else {
+                        wp.forward(part, e + 1, xPos);
+                        wp.concat(part, part, seg);
+                        actual = wp.accepts(s - 1, part, xPos + 1, delta);
+                    }
+                    assertTrue(in.accepts(order, cand) == actual,
+                            "move " + s + ".." + e + " after " + xPos + (reversed ? " reversed" : "") + ", n=" + n);
+
+                    if (r.nextBoolean()) {
+                        System.arraycopy(cand, 0, order, 0, n);
+                        wp.invalidate(Math.min(s, xPos + 1), Math.max(e, xPos));
+                    }
+                    assertEquals(in.warp(order), wp.warp(), EPS, "warp after move, n=" + n);
+                }
+            }
+        }
+    }
+
+    /** A random asymmetric matrix with windows and service times, plus the reference walk. */
+    private static final class Instance {
+        final CostMatrix cost;
+        final double[] earliest;
+        final double[] latest;
+        final double[] service;
+        final TimeWindows windows;
+
+        Instance(Random r, int n) {
+            cost = CostMatrix.dense(n, false);
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    if (a != b) cost.set(a, b, 1 + 99 * r.nextDouble());
+                }
+            }
+            earliest = new double[n];
+            latest = new double[n];
+            service = new double[n];
+            latest[0] = Double.POSITIVE_INFINITY;
+            for (int v = 1; v < n; v++) {
+                earliest[v] = r.nextDouble() * 40 * n;
+                latest[v] = r.nextInt(5) == 0 ? Double.POSITIVE_INFINITY : earliest[v] + 20 + r.nextDouble() * 150;
+                service[v] = r.nextInt(10);
+            }
+            windows = new TimeWindows(earliest, latest, service);
+        }
+
+        /**
+         * Drives the route from the first stop's opening: waits for a window that is not open yet,
+         * and when late, notes by how much and carries on as if service had started on time.
+         */
+        double warp(int[] order) {
+            double t = 0.0;
+            double warp = 0.0;
+            for (int p = 0; p < order.length; p++) {
+                int v = order[p];
+                if (p > 0) t += cost.get(order[p - 1], v);
+                t = Math.max(t, earliest[v]);
+                if (t > latest[v]) {
+                    warp += t - latest[v];
+                    t = latest[v];
+                }
+                t += service[v];
+            }
+            return warp;
+        }
+
+        double costDelta(int[] from, int[] to) {
+            return PathConstruction.totalCost(to, cost) - PathConstruction.totalCost(from, cost);
+        }
+
+        /** The rule {@link WindowedPath#accepts} documents: less warp, or the same and cheaper. */
+        boolean accepts(int[] current, int[] candidate) {
+            double now = warp(current);
+            double then = warp(candidate);
+            if (then < now - TimeWindows.EPS) return true;
+            return then <= now + TimeWindows.EPS && costDelta(current, candidate) < -1e-9;
+        }
+    }
+
+    /** order with order[s..e] moved right after position xPos, optionally reversed. */
+    private static int[] moveSegment(int[] order, int s, int e, int xPos, boolean reversed) {
+        int[] out = new int[order.length];
+        int w = 0;
+        for (int p = 0; p < order.length; p++) {
+            if (p >= s && p <= e) continue;
+            out[w++] = order[p];
+            if (p == xPos) {
+                for (int t = s; t <= e; t++) out[w++] = order[reversed ? s + e - t : t];
+            }
+        }
+        return out;
+    }
+
+    private static void reverse(int[] order, int i, int k) {
+        for (; i < k; i++, k--) {
+            int t = order[i];
+            order[i] = order[k];
+            order[k] = t;
+        }
+    }
+
+    /** 0 first, the rest in random order. */
+    private static int[] shuffled(Random r, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 1; i--) {
+            int j = 1 + r.nextInt(i);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+}
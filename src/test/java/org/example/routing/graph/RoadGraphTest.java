@@ -0,0 +1,156 @@
+package org.example.routing.graph;
+
+import org.example.routing.CostMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The contraction hierarchy against plain Dijkstra on a small grid with random, direction-dependent
+ * travel times (so fastest and shortest paths differ) and some one-way diagonals.
+ */
+class RoadGraphTest {
+
+    private static final int SIDE = 15;
+    /** Shortcut costs are stored as float32, so sums over them differ in the last few digits. */
+    private static final double EPS = 1e-3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matrixAndPathsMatchDijkstra() throws Exception {
+        OsmReader.Network net = grid(new Random(42));
+        Path file = dir.resolve("grid.graph");
+        RoadGraph.write(file, net, ChBuilder.build(net));
+        RoadGraph g = RoadGraph.open(file);
+
+        int[] nodes = new int[net.nodes];
+        for (int v = 0; v < nodes.length; v++) nodes[v] = v;
+        CostMatrix durs = CostMatrix.dense(nodes.length, false);
+        CostMatrix dists = CostMatrix.dense(nodes.length, false);
+        g.matrix(nodes, durs, dists);
+
+        Map<Long, Integer> byCoords = new HashMap<>();
+        for (int v = 0; v < net.nodes; v++) byCoords.put(key(net.lon[v], net.lat[v]), v);
+
+        for (int s = 0; s < net.nodes; s++) {
+            double[][] d = dijkstra(net, s);
+            for (int t = 0; t < net.nodes; t++) {
+                assertEquals(d[0][t], durs.get(s, t), EPS, "seconds " + s + " -> " + t);
+                assertEquals(d[1][t], dists.get(s, t), EPS, "meters " + s + " -> " + t);
+            }
+        }
+
+        // every path is a chain of real edges from `from` to `to` that costs its matrix cell
+        Random r = new Random(7);
+        for (int q = 0; q < 300; q++) {
+            int from = r.nextInt(net.nodes);
+            int to = r.nextInt(net.nodes);
+            List<double[]> path = g.path(from, to);
+            assertNotNull(path, from + " -> " + to);
+
+            int prev = node(byCoords, path.get(0));
+            assertEquals(from, prev);
+            double seconds = 0;
+            double meters = 0;
+            for (int i = 1; i < path.size(); i++) {
+                int cur = node(byCoords, path.get(i));
+                int e = fastestEdge(net, prev, cur);
+                assertTrue(e >= 0, "no edge " + prev + " -> " + cur);
+                seconds += net.seconds[e];
+                meters += net.meters[e];
+                prev = cur;
+            }
+            assertEquals(to, prev);
+            assertEquals(durs.get(from, to), seconds, EPS, "path seconds " + from + " -> " + to);
+            assertEquals(dists.get(from, to), meters, EPS, "path meters " + from + " -> " + to);
+        }
+    }
+
+    private static OsmReader.Network grid(Random r) {
+        OsmReader.Network net = new OsmReader.Network();
+        net.nodes = SIDE * SIDE;
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                net.lat[y * SIDE + x] = 555_000_000 + y * 10_000;
+                net.lon[y * SIDE + x] = 375_000_000 + x * 10_000;
+            }
+        }
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int v = y * SIDE + x;
+                if (x + 1 < SIDE) twoWay(net, r, v, v + 1);
+                if (y + 1 < SIDE) twoWay(net, r, v, v + SIDE);
+                if (x + 1 < SIDE && y + 1 < SIDE && r.nextInt(4) == 0) {
+                    net.addEdge(v, v + SIDE + 1, 1 + 40 * r.nextDouble(), 160);
+                }
+            }
+        }
+        return net;
+    }
+
+    private static void twoWay(OsmReader.Network net, Random r, int a, int b) {
+        double meters = 100 + 20 * r.nextDouble();
+        net.addEdge(a, b, 1 + 60 * r.nextDouble(), meters);
+        net.addEdge(b, a, 1 + 60 * r.nextDouble(), meters);
+    }
+
+    /** {seconds, meters of the fastest path} to every node; +∞ if unreachable. */
+    private static double[][] dijkstra(OsmReader.Network net, int source) {
+        double[] seconds = new double[net.nodes];
+        double[] meters = new double[net.nodes];
+        Arrays.fill(seconds, Double.POSITIVE_INFINITY);
+        Arrays.fill(meters, Double.POSITIVE_INFINITY);
+        seconds[source] = 0;
+        meters[source] = 0;
+        PriorityQueue<double[]> heap = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        heap.add(new double[]{0, source});
+        boolean[] done = new boolean[net.nodes];
+        while (!heap.isEmpty()) {
+            int v = (int) heap.poll()[1];
+            if (done[v]) continue;
+            done[v] = true;
+            for (int e = 0; e < net.edges; e++) {
+                if (net.from[e] != v) continue;
+                int w = net.to[e];
+                double s = seconds[v] + net.seconds[e];
+                if (s < seconds[w]) {
+                    seconds[w] = s;
+                    meters[w] = meters[v] + net.meters[e];
+                    heap.add(new double[]{s, w});
+                }
+            }
+        }
+        return new double[][]{seconds, meters};
+    }
+
+    private static int fastestEdge(OsmReader.Network net, int a, int b) {
+        int best = -1;
+        for (int e = 0; e < net.edges; e++) {
+            if (net.from[e] == a && net.to[e] == b && (best < 0 || net.seconds[e] < net.seconds[best])) best = e;
+        }
+        return best;
+    }
+
+    private static int node(Map<Long, Integer> byCoords, double[] lonLat) {
+        Integer v = byCoords.get(key((int) Math.round(lonLat[0] * 1e7), (int) Math.round(lonLat[1] * 1e7)));
+        assertNotNull(v, "path point off the graph");
+        return v;
+    }
+
+    private static long key(int lon, int lat) {
+        return ((long) lon << 32) | (lat & 0xffffffffL);
+    }
+}